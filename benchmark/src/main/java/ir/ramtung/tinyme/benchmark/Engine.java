@@ -0,0 +1,80 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.*;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.CheckpointService;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+class Engine implements AutoCloseable {
+    static final String ISIN = "ABC";
+    static final long BROKER_ID = 1;
+    static final long SHAREHOLDER_ID = 1;
+    static final int BASE_PRICE = 10_000;
+
+    private final AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+    final Matcher matcher;
+    final OrderHandler orderHandler;
+    final StubEventPublisher eventPublisher;
+    final SecurityRepository securityRepository;
+    final Broker broker;
+    final Shareholder shareholder;
+
+    Engine() {
+        context.register(BrokerRepository.class, ShareholderRepository.class, SecurityRepository.class,
+                CheckpointService.class, EngineMetrics.class, StubEventPublisher.class,
+                CreditControl.class, OwnershipControl.class, MinimumExecutionQuantityControl.class,
+                MatchingControlList.class, Matcher.class, OrderHandler.class);
+        context.refresh();
+        matcher = context.getBean(Matcher.class);
+        orderHandler = context.getBean(OrderHandler.class);
+        eventPublisher = context.getBean(StubEventPublisher.class);
+        securityRepository = context.getBean(SecurityRepository.class);
+        broker = Broker.builder().brokerId(BROKER_ID).name("benchmark").credit(Long.MAX_VALUE / 4).build();
+        shareholder = Shareholder.builder().shareholderId(SHAREHOLDER_ID).name("benchmark").build();
+        context.getBean(BrokerRepository.class).addBroker(broker);
+        context.getBean(ShareholderRepository.class).addShareholder(shareholder);
+    }
+
+    Security newSecurity(boolean dense, int depth) {
+        OrderBook orderBook = dense
+                ? new OrderBook(new PriceBand(BASE_PRICE - depth - 1, BASE_PRICE + depth + 1), 1)
+                : new OrderBook();
+        Security security = Security.builder().isin(ISIN).orderBook(orderBook).build();
+        securityRepository.addSecurity(security);
+        shareholder.incPosition(security, Integer.MAX_VALUE / 2);
+        return security;
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+
+    static class StubEventPublisher extends EventPublisher {
+        private long published;
+        private Event last;
+
+        StubEventPublisher() {
+            super(null, new EngineMetrics(false, false, 0), false, 1, 1, 0);
+        }
+
+        @Override
+        public void publish(Event event) {
+            published++;
+            last = event;
+        }
+
+        long getPublished() {
+            return published;
+        }
+
+        Event getLast() {
+            return last;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.MatchResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatcherBenchmark {
+    private static final int QUANTITY = 100;
+    private static final int PEAK_SIZE = 10;
+
+    public enum Scenario {
+        PASSIVE, CROSSING, SWEEPING, ICEBERG, REJECTED
+    }
+
+    @Param({"PASSIVE", "CROSSING", "SWEEPING", "ICEBERG", "REJECTED"})
+    private Scenario scenario;
+    @Param({"16", "256"})
+    private int depth;
+
+    private Engine engine;
+    private Security security;
+    private Order order;
+    private final LocalDateTime time = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    @Setup(Level.Trial)
+    public void setupEngine() {
+        engine = new Engine();
+        security = engine.newSecurity(false, depth);
+    }
+
+    // Every scenario but PASSIVE consumes or extends the book it matches against, so each
+    // invocation needs the same starting book; the one security is emptied and refilled in place.
+    @Setup(Level.Invocation)
+    public void setupBook() {
+        OrderBook orderBook = security.getOrderBook();
+        for (Side side : Side.values())
+            while (orderBook.hasOrderOfType(side))
+                orderBook.removeFirst(side);
+        Broker poorBroker = Broker.builder().brokerId(2).name("poor").credit((long) Engine.BASE_PRICE * QUANTITY).build();
+        for (int i = 0; i < depth; i++) {
+            int price = Engine.BASE_PRICE + 1 + i;
+            if (scenario == Scenario.ICEBERG)
+                orderBook.enqueue(new IcebergOrder(i + 1, security, Side.SELL, QUANTITY, price, engine.broker, engine.shareholder, time, PEAK_SIZE, 0));
+            else
+                orderBook.enqueue(new Order(i + 1, security, Side.SELL, QUANTITY, price, engine.broker, engine.shareholder, time, 0));
+            orderBook.enqueue(new Order(depth + i + 1, security, Side.BUY, QUANTITY, Engine.BASE_PRICE - 1 - i, engine.broker, engine.shareholder, time, 0));
+        }
+        long orderId = 2L * depth + 1;
+        order = switch (scenario) {
+            case PASSIVE -> new Order(orderId, security, Side.BUY, QUANTITY, Engine.BASE_PRICE, engine.broker, engine.shareholder, time, 0);
+            case CROSSING -> new Order(orderId, security, Side.BUY, QUANTITY / 2, Engine.BASE_PRICE + 1, engine.broker, engine.shareholder, time, 0);
+            case SWEEPING -> new Order(orderId, security, Side.BUY, QUANTITY * depth, Engine.BASE_PRICE + depth, engine.broker, engine.shareholder, time, 0);
+            case ICEBERG -> new Order(orderId, security, Side.BUY, QUANTITY * 2, Engine.BASE_PRICE + 1, engine.broker, engine.shareholder, time, 0);
+            case REJECTED -> new Order(orderId, security, Side.BUY, QUANTITY * (depth + 1), Engine.BASE_PRICE + depth, poorBroker, engine.shareholder, time, 0);
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Benchmark
+    public MatchResult execute() {
+        return engine.matcher.execute(order);
+    }
+}
@@ -0,0 +1,86 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.Order;
+import ir.ramtung.tinyme.domain.entity.OrderBook;
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.Side;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderBookBenchmark {
+    private static final int ORDERS_PER_LEVEL = 4;
+    private static final int CURSOR_MASK = 1023;
+
+    @Param({"16", "1024", "65536"})
+    private int depth;
+    @Param({"false", "true"})
+    private boolean dense;
+
+    private Engine engine;
+    private OrderBook orderBook;
+    private Order[] resting;
+    private Order[] incoming;
+    private long[] lookups;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        engine = new Engine();
+        Security security = engine.newSecurity(dense, depth / ORDERS_PER_LEVEL);
+        orderBook = security.getOrderBook();
+        LocalDateTime time = LocalDateTime.of(2024, 1, 1, 9, 0);
+        resting = new Order[depth];
+        for (int i = 0; i < depth; i++) {
+            resting[i] = new Order(i + 1, security, Side.BUY, 100, Engine.BASE_PRICE - i / ORDERS_PER_LEVEL,
+                    engine.broker, engine.shareholder, time, 0);
+            orderBook.enqueue(resting[i]);
+        }
+        Random random = new Random(42);
+        incoming = new Order[CURSOR_MASK + 1];
+        lookups = new long[CURSOR_MASK + 1];
+        for (int i = 0; i <= CURSOR_MASK; i++) {
+            int level = random.nextInt(Math.max(depth / ORDERS_PER_LEVEL, 1));
+            incoming[i] = new Order(depth + 1 + i, security, Side.BUY, 100, Engine.BASE_PRICE - level,
+                    engine.broker, engine.shareholder, time, 0);
+            lookups[i] = 1 + random.nextInt(depth);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.close();
+    }
+
+    private int next() {
+        return cursor = (cursor + 1) & CURSOR_MASK;
+    }
+
+    @Benchmark
+    public boolean enqueueThenRemove() {
+        Order order = incoming[next()];
+        orderBook.enqueue(order);
+        return orderBook.removeByOrderId(Side.BUY, order.getOrderId());
+    }
+
+    @Benchmark
+    public Order findByOrderId() {
+        return orderBook.findByOrderId(Side.BUY, lookups[next()]);
+    }
+
+    @Benchmark
+    public boolean removeThenEnqueue() {
+        Order order = resting[(int) lookups[next()] - 1];
+        boolean removed = orderBook.removeByOrderId(Side.BUY, order.getOrderId());
+        orderBook.enqueue(order);
+        return removed;
+    }
+}
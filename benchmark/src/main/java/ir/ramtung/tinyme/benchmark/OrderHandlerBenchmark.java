@@ -0,0 +1,73 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.Order;
+import ir.ramtung.tinyme.domain.entity.OrderBook;
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderHandlerBenchmark {
+    private static final int QUANTITY = 100;
+
+    @Param({"16", "1024"})
+    private int depth;
+
+    private Engine engine;
+    private final LocalDateTime time = LocalDateTime.of(2024, 1, 1, 9, 0);
+    private long requestId;
+    private long orderId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        engine = new Engine();
+        Security security = engine.newSecurity(false, depth);
+        OrderBook orderBook = security.getOrderBook();
+        for (int i = 0; i < depth; i++) {
+            orderBook.enqueue(new Order(++orderId, security, Side.SELL, QUANTITY, Engine.BASE_PRICE + 1 + i, engine.broker, engine.shareholder, time, 0));
+            orderBook.enqueue(new Order(++orderId, security, Side.BUY, QUANTITY, Engine.BASE_PRICE - 1 - i, engine.broker, engine.shareholder, time, 0));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.close();
+    }
+
+    private EnterOrderRq newOrderRq(Side side, int price) {
+        return EnterOrderRq.createNewOrderRq(++requestId, Engine.ISIN, ++orderId, time, side, QUANTITY, price,
+                Engine.BROKER_ID, Engine.SHAREHOLDER_ID, 0, 0);
+    }
+
+    @Benchmark
+    public Event enterPassiveThenDelete() {
+        EnterOrderRq enterOrderRq = newOrderRq(Side.BUY, Engine.BASE_PRICE);
+        engine.orderHandler.handleEnterOrder(enterOrderRq);
+        engine.orderHandler.handleDeleteOrder(new DeleteOrderRq(++requestId, Engine.ISIN, Side.BUY, enterOrderRq.getOrderId(), time));
+        return engine.eventPublisher.getLast();
+    }
+
+    @Benchmark
+    public Event enterCrossingPair() {
+        engine.orderHandler.handleEnterOrder(newOrderRq(Side.BUY, Engine.BASE_PRICE));
+        engine.orderHandler.handleEnterOrder(newOrderRq(Side.SELL, Engine.BASE_PRICE));
+        return engine.eventPublisher.getLast();
+    }
+
+    @Benchmark
+    public Event enterRejected() {
+        engine.orderHandler.handleEnterOrder(newOrderRq(Side.BUY, -Engine.BASE_PRICE));
+        return engine.eventPublisher.getLast();
+    }
+}
@@ -0,0 +1,101 @@
+package ir.ramtung.tinyme.loadgen;
+
+import ir.ramtung.tinyme.domain.service.LatencyHistogram;
+import ir.ramtung.tinyme.messaging.BinaryCodec;
+import ir.ramtung.tinyme.messaging.event.Event;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+class GatewayTarget implements Target {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final BinaryCodec codec = new BinaryCodec();
+    private final SocketChannel channel;
+    private final ByteBuffer out = ByteBuffer.allocate(64 * 1024);
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicLong responses = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final Thread reader;
+
+    private record Pending(long scheduledNanos, LatencyHistogram histogram) {}
+
+    GatewayTarget(LoadProfile profile) throws IOException {
+        channel = SocketChannel.open(new InetSocketAddress(profile.gatewayHost(), profile.gatewayPort()));
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        reader = new Thread(this::readResponses, "gateway-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    @Override
+    public void submit(TimedRequest timedRequest, long scheduledNanos, LatencyHistogram histogram) throws IOException {
+        pending.put(timedRequest.requestId(), new Pending(scheduledNanos, histogram));
+        out.clear();
+        out.putInt(codec.sizeOf(timedRequest.request()));
+        codec.encode(timedRequest.request(), out);
+        out.flip();
+        while (out.hasRemaining())
+            channel.write(out);
+    }
+
+    private void readResponses() {
+        ByteBuffer in = ByteBuffer.allocate(1024 * 1024);
+        try {
+            while (channel.read(in) >= 0) {
+                long now = System.nanoTime();
+                in.flip();
+                while (in.remaining() >= Integer.BYTES && in.remaining() >= Integer.BYTES + in.getInt(in.position())) {
+                    int length = in.getInt();
+                    int end = in.position() + length;
+                    onResponse((Event) codec.decode(in.slice(in.position(), length)), now);
+                    in.position(end);
+                }
+                in.compact();
+            }
+        } catch (IOException ex) {
+            if (channel.isOpen())
+                log.warning("Gateway connection failed: " + ex);
+        }
+    }
+
+    private void onResponse(Event event, long now) {
+        rejections.addAndGet(JmsTarget.rejectionsIn(event));
+        Pending request = pending.remove(JmsTarget.requestIdOf(event));
+        if (request == null)
+            return;
+        responses.incrementAndGet();
+        if (request.histogram() != null)
+            request.histogram().record(now - request.scheduledNanos());
+    }
+
+    @Override
+    public boolean drain(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!pending.isEmpty() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        return pending.isEmpty();
+    }
+
+    @Override
+    public long getResponses() {
+        return responses.get();
+    }
+
+    @Override
+    public long getRejections() {
+        return rejections.get();
+    }
+
+    @Override
+    public void close() throws Exception {
+        channel.close();
+        reader.join(1000);
+    }
+}
@@ -0,0 +1,129 @@
+package ir.ramtung.tinyme.loadgen;
+
+import ir.ramtung.tinyme.domain.entity.Broker;
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.Shareholder;
+import ir.ramtung.tinyme.domain.service.*;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.request.BatchOrderEntry;
+import ir.ramtung.tinyme.messaging.request.BatchOrderRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.CheckpointService;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class InProcessTarget implements Target {
+    private static final long CREDIT = Long.MAX_VALUE / 4;
+    private static final int POSITIONS = Integer.MAX_VALUE / 2;
+
+    private final AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+    private final OrderHandler orderHandler;
+    private final CountingEventPublisher eventPublisher;
+    private final SecurityRepository securityRepository;
+    private final BrokerRepository brokerRepository;
+    private final ShareholderRepository shareholderRepository;
+    private final List<Security> securities = new ArrayList<>();
+    private final List<Shareholder> shareholders = new ArrayList<>();
+    private long requests;
+
+    InProcessTarget() {
+        context.register(BrokerRepository.class, ShareholderRepository.class, SecurityRepository.class,
+                CheckpointService.class, EngineMetrics.class, CountingEventPublisher.class,
+                CreditControl.class, OwnershipControl.class, MinimumExecutionQuantityControl.class,
+                MatchingControlList.class, Matcher.class, OrderHandler.class);
+        context.refresh();
+        orderHandler = context.getBean(OrderHandler.class);
+        eventPublisher = context.getBean(CountingEventPublisher.class);
+        securityRepository = context.getBean(SecurityRepository.class);
+        brokerRepository = context.getBean(BrokerRepository.class);
+        shareholderRepository = context.getBean(ShareholderRepository.class);
+    }
+
+    @Override
+    public void submit(TimedRequest timedRequest, long scheduledNanos, LatencyHistogram histogram) {
+        Object request = timedRequest.request();
+        if (request instanceof EnterOrderRq enterOrderRq) {
+            provision(enterOrderRq);
+            orderHandler.handleEnterOrder(enterOrderRq);
+        } else if (request instanceof DeleteOrderRq deleteOrderRq) {
+            provision(deleteOrderRq.getSecurityIsin());
+            orderHandler.handleDeleteOrder(deleteOrderRq);
+        } else if (request instanceof BatchOrderRq batchOrderRq) {
+            for (BatchOrderEntry entry : batchOrderRq.getEntries())
+                if (entry != null && entry.getEnterOrderRq() != null)
+                    provision(entry.getEnterOrderRq());
+                else if (entry != null && entry.getSecurityIsin() != null)
+                    provision(entry.getSecurityIsin());
+            orderHandler.handleBatchOrder(batchOrderRq);
+        } else
+            throw new IllegalArgumentException("Unsupported request " + request.getClass().getName());
+        requests++;
+        if (histogram != null)
+            histogram.record(System.nanoTime() - scheduledNanos);
+    }
+
+    private void provision(EnterOrderRq enterOrderRq) {
+        provision(enterOrderRq.getSecurityIsin());
+        if (brokerRepository.findBrokerById(enterOrderRq.getBrokerId()) == null)
+            brokerRepository.addBroker(Broker.builder().brokerId(enterOrderRq.getBrokerId())
+                    .name("broker" + enterOrderRq.getBrokerId()).credit(CREDIT).build());
+        if (shareholderRepository.findShareholderById(enterOrderRq.getShareholderId()) == null) {
+            Shareholder shareholder = Shareholder.builder().shareholderId(enterOrderRq.getShareholderId())
+                    .name("shareholder" + enterOrderRq.getShareholderId()).build();
+            for (Security security : securities)
+                shareholder.incPosition(security, POSITIONS);
+            shareholders.add(shareholder);
+            shareholderRepository.addShareholder(shareholder);
+        }
+    }
+
+    private void provision(String isin) {
+        if (isin == null || securityRepository.findSecurityByIsin(isin) != null)
+            return;
+        Security security = Security.builder().isin(isin).build();
+        for (Shareholder shareholder : shareholders)
+            shareholder.incPosition(security, POSITIONS);
+        securities.add(security);
+        securityRepository.addSecurity(security);
+    }
+
+    @Override
+    public boolean drain(long timeoutMillis) {
+        return true;
+    }
+
+    @Override
+    public long getResponses() {
+        return requests;
+    }
+
+    @Override
+    public long getRejections() {
+        return eventPublisher.rejections;
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+
+    static class CountingEventPublisher extends EventPublisher {
+        private long rejections;
+
+        CountingEventPublisher() {
+            super(null, new EngineMetrics(false, false, 0), false, 1, 1, 0);
+        }
+
+        @Override
+        public void publish(Event event) {
+            rejections += JmsTarget.rejectionsIn(event);
+        }
+    }
+}
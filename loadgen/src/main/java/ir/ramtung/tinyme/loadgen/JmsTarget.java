@@ -0,0 +1,141 @@
+package ir.ramtung.tinyme.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ir.ramtung.tinyme.domain.service.LatencyHistogram;
+import ir.ramtung.tinyme.messaging.BinaryMessageConverter;
+import ir.ramtung.tinyme.messaging.MessagingConfig;
+import ir.ramtung.tinyme.messaging.event.*;
+import jakarta.jms.*;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+class JmsTarget implements Target {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final MessageConverter converter;
+    private final boolean binary;
+    private final Connection connection;
+    private final Session producerSession;
+    private final MessageProducer producer;
+    private final Session consumerSession;
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicLong responses = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+
+    private record Pending(long scheduledNanos, LatencyHistogram histogram) {}
+
+    JmsTarget(LoadProfile profile) throws JMSException {
+        binary = profile.codec().equals("binary");
+        converter = binary
+                ? new BinaryMessageConverter(MessagingConfig.TYPE_ID_PROPERTY_NAME)
+                : new MessagingConfig().jacksonJmsMessageConverter();
+        connection = new ActiveMQConnectionFactory(profile.brokerUrl()).createConnection();
+        producerSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        producer = producerSession.createProducer(producerSession.createQueue(profile.requestQueue()));
+        producer.setDeliveryMode(profile.persistent() ? DeliveryMode.PERSISTENT : DeliveryMode.NON_PERSISTENT);
+        consumerSession = connection.createSession(false, Session.DUPS_OK_ACKNOWLEDGE);
+        MessageConsumer consumer = consumerSession.createConsumer(consumerSession.createQueue(profile.responseQueue()));
+        connection.start();
+        long stale = 0;
+        while (consumer.receive(100) != null)
+            stale++;
+        if (stale > 0)
+            log.info("Discarded " + stale + " stale responses from " + profile.responseQueue());
+        consumer.setMessageListener(this::onResponse);
+    }
+
+    @Override
+    public void submit(TimedRequest timedRequest, long scheduledNanos, LatencyHistogram histogram) throws JMSException {
+        pending.put(timedRequest.requestId(), new Pending(scheduledNanos, histogram));
+        producer.send(converter.toMessage(timedRequest.request(), producerSession));
+    }
+
+    private void onResponse(Message message) {
+        long now = System.nanoTime();
+        try {
+            long requestId;
+            if (binary) {
+                Event event = (Event) converter.fromMessage(message);
+                requestId = requestIdOf(event);
+                rejections.addAndGet(rejectionsIn(event));
+            } else {
+                JsonNode event = mapper.readTree(((TextMessage) message).getText());
+                requestId = event.path("requestId").asLong();
+                rejections.addAndGet(rejectionsIn(message.getStringProperty(MessagingConfig.TYPE_ID_PROPERTY_NAME), event));
+            }
+            Pending request = pending.remove(requestId);
+            if (request == null)
+                return;
+            responses.incrementAndGet();
+            if (request.histogram() != null)
+                request.histogram().record(now - request.scheduledNanos());
+        } catch (Exception ex) {
+            log.warning("Could not read response: " + ex);
+        }
+    }
+
+    static long requestIdOf(Event event) {
+        if (event instanceof OrderAcceptedEvent accepted)
+            return accepted.getRequestId();
+        if (event instanceof OrderUpdatedEvent updated)
+            return updated.getRequestId();
+        if (event instanceof OrderDeletedEvent deleted)
+            return deleted.getRequestId();
+        if (event instanceof OrderExecutedEvent executed)
+            return executed.getRequestId();
+        if (event instanceof OrderRejectedEvent rejected)
+            return rejected.getRequestId();
+        if (event instanceof BatchEvent batch)
+            return batch.getRequestId();
+        return -1;
+    }
+
+    static long rejectionsIn(Event event) {
+        if (event instanceof OrderRejectedEvent)
+            return 1;
+        long rejected = 0;
+        if (event instanceof BatchEvent batch)
+            for (Event nested : batch.getEvents())
+                rejected += rejectionsIn(nested);
+        return rejected;
+    }
+
+    private static long rejectionsIn(String type, JsonNode event) {
+        if (type != null && type.endsWith(OrderRejectedEvent.class.getSimpleName()))
+            return 1;
+        long rejected = 0;
+        for (JsonNode nested : event.path("events"))
+            if (nested.path("@class").asText().endsWith(OrderRejectedEvent.class.getSimpleName()))
+                rejected++;
+        return rejected;
+    }
+
+    @Override
+    public boolean drain(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!pending.isEmpty() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        return pending.isEmpty();
+    }
+
+    @Override
+    public long getResponses() {
+        return responses.get();
+    }
+
+    @Override
+    public long getRejections() {
+        return rejections.get();
+    }
+
+    @Override
+    public void close() throws JMSException {
+        connection.close();
+    }
+}
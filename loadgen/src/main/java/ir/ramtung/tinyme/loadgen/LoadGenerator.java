@@ -0,0 +1,105 @@
+package ir.ramtung.tinyme.loadgen;
+
+import ir.ramtung.tinyme.domain.service.LatencyHistogram;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.locks.LockSupport;
+
+public class LoadGenerator {
+    private static final long SPIN_THRESHOLD_NANOS = 50_000;
+
+    private final LoadProfile profile;
+    private final Target target;
+    private final RequestLog.Writer recorder;
+    private final boolean paced;
+    private long runStart;
+
+    LoadGenerator(LoadProfile profile, Target target, RequestLog.Writer recorder, boolean paced) {
+        this.profile = profile;
+        this.target = target;
+        this.recorder = recorder;
+        this.paced = paced;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadProfile profile = LoadProfile.parse(args);
+        long warmup = profile.warmup();
+        Iterator<TimedRequest> source;
+        boolean paced;
+        if (profile.replay() != null) {
+            source = RequestLog.readAll(Path.of(profile.replay())).iterator();
+            paced = profile.recordedSpeed();
+        } else {
+            source = new OrderFlow(profile, warmup + profile.requests());
+            paced = profile.rate() > 0;
+        }
+        try (Target target = target(profile);
+             RequestLog.Writer recorder = profile.record() == null ? null : RequestLog.write(Path.of(profile.record()))) {
+            LoadGenerator generator = new LoadGenerator(profile, target, recorder, paced);
+            generator.run(source, warmup);
+        }
+    }
+
+    private static Target target(LoadProfile profile) throws Exception {
+        return switch (profile.mode()) {
+            case "jms" -> new JmsTarget(profile);
+            case "gateway" -> new GatewayTarget(profile);
+            case "inprocess" -> new InProcessTarget();
+            default -> throw new IllegalArgumentException("Unknown mode " + profile.mode());
+        };
+    }
+
+    void run(Iterator<TimedRequest> source, long warmup) throws Exception {
+        runStart = System.nanoTime();
+        if (warmup > 0) {
+            send(source, warmup, null);
+            target.drain(profile.drainTimeoutMillis());
+        }
+        long responsesBefore = target.getResponses();
+        long rejectionsBefore = target.getRejections();
+        LatencyHistogram histogram = new LatencyHistogram();
+        long start = System.nanoTime();
+        long sent = send(source, Long.MAX_VALUE, histogram);
+        boolean drained = target.drain(profile.drainTimeoutMillis());
+        long elapsed = System.nanoTime() - start;
+        long responses = target.getResponses() - responsesBefore;
+        System.out.printf("mode=%s sent=%d responses=%d rejections=%d unanswered=%d%s%n", profile.mode(), sent, responses,
+                target.getRejections() - rejectionsBefore, sent - responses, drained ? "" : " (drain timed out)");
+        System.out.printf("elapsed=%.3fs throughput=%.0f requests/s%n", elapsed / 1e9, responses * 1e9 / elapsed);
+        System.out.printf("latency(us) mean=%.1f p50=%.1f p99=%.1f p99.9=%.1f max=%.1f%n", histogram.getMean() / 1e3,
+                histogram.getP50() / 1e3, histogram.getP99() / 1e3, histogram.getP999() / 1e3, histogram.getMax() / 1e3);
+    }
+
+    private long send(Iterator<TimedRequest> source, long limit, LatencyHistogram histogram) throws Exception {
+        long sent = 0;
+        long origin = -1;
+        long phaseStart = System.nanoTime();
+        while (sent < limit && source.hasNext()) {
+            TimedRequest timedRequest = source.next();
+            long scheduled;
+            if (paced) {
+                if (origin < 0)
+                    origin = timedRequest.offsetNanos();
+                scheduled = phaseStart + timedRequest.offsetNanos() - origin;
+                waitUntil(scheduled);
+            } else
+                scheduled = System.nanoTime();
+            if (recorder != null)
+                recorder.append(new TimedRequest(scheduled - runStart, timedRequest.request()));
+            target.submit(timedRequest, scheduled, histogram);
+            sent++;
+        }
+        return sent;
+    }
+
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > SPIN_THRESHOLD_NANOS)
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            else
+                Thread.onSpinWait();
+        }
+    }
+}
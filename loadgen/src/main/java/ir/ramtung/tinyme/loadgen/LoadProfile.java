@@ -0,0 +1,73 @@
+package ir.ramtung.tinyme.loadgen;
+
+import java.util.HashMap;
+import java.util.Map;
+
+class LoadProfile {
+    private final Map<String, String> options;
+
+    private LoadProfile(Map<String, String> options) {
+        this.options = options;
+    }
+
+    static LoadProfile parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--"))
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            int separator = arg.indexOf('=');
+            if (separator < 0)
+                options.put(arg.substring(2), "true");
+            else
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return new LoadProfile(options);
+    }
+
+    String mode() { return string("mode", "inprocess"); }
+    String replay() { return string("replay", null); }
+    String record() { return string("record", null); }
+    boolean recordedSpeed() { return string("speed", "max").equals("recorded"); }
+
+    long requests() { return number("requests", 100_000); }
+    long warmup() { return number("warmup", replay() == null ? 10_000 : 0); }
+    long rate() { return number("rate", 0); }
+    long seed() { return number("seed", 42); }
+
+    int isins() { return (int) number("isins", 4); }
+    int brokers() { return (int) number("brokers", 8); }
+    int shareholders() { return (int) number("shareholders", 32); }
+
+    double newWeight() { return decimal("new", 0.6); }
+    double updateWeight() { return decimal("update", 0.2); }
+    double deleteWeight() { return decimal("delete", 0.2); }
+
+    int midPrice() { return (int) number("mid", 15_000); }
+    double priceDeviation() { return decimal("priceDeviation", 20); }
+    int meanQuantity() { return (int) number("meanQuantity", 100); }
+    double icebergRatio() { return decimal("iceberg", 0.1); }
+    double meqRatio() { return decimal("meq", 0.05); }
+
+    String brokerUrl() { return string("brokerUrl", "tcp://127.0.0.1:61616"); }
+    String requestQueue() { return string("requestQueue", "RQ"); }
+    String responseQueue() { return string("responseQueue", "RS"); }
+    String codec() { return string("codec", "json"); }
+    boolean persistent() { return Boolean.parseBoolean(string("persistent", "false")); }
+    String gatewayHost() { return string("gatewayHost", "127.0.0.1"); }
+    int gatewayPort() { return (int) number("gatewayPort", 9091); }
+    long drainTimeoutMillis() { return number("drainTimeoutMillis", 30_000); }
+
+    private String string(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    private long number(String name, long defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : Long.parseLong(value.replace("_", ""));
+    }
+
+    private double decimal(String name, double defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+}
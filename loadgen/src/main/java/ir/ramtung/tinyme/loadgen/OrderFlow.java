@@ -0,0 +1,108 @@
+package ir.ramtung.tinyme.loadgen;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+class OrderFlow implements Iterator<TimedRequest> {
+    private final LoadProfile profile;
+    private final Random random;
+    private final long count;
+    private final long intervalNanos;
+    private final List<LiveOrder> liveOrders = new ArrayList<>();
+    private long generated;
+    private long nextOrderId = 1;
+
+    OrderFlow(LoadProfile profile, long count) {
+        this.profile = profile;
+        this.random = new Random(profile.seed());
+        this.count = count;
+        this.intervalNanos = profile.rate() > 0 ? 1_000_000_000L / profile.rate() : 0;
+    }
+
+    static String isin(int index) {
+        return "SEC" + (index + 1);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return generated < count;
+    }
+
+    @Override
+    public TimedRequest next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        long requestId = ++generated;
+        long offset = (requestId - 1) * intervalNanos;
+        double total = profile.newWeight() + profile.updateWeight() + profile.deleteWeight();
+        double pick = random.nextDouble() * total;
+        if (liveOrders.isEmpty() || pick < profile.newWeight())
+            return new TimedRequest(offset, newOrder(requestId));
+        if (pick < profile.newWeight() + profile.updateWeight())
+            return new TimedRequest(offset, updateOrder(requestId));
+        return new TimedRequest(offset, deleteOrder(requestId));
+    }
+
+    private EnterOrderRq newOrder(long requestId) {
+        LiveOrder order = new LiveOrder();
+        order.isin = isin(random.nextInt(profile.isins()));
+        order.orderId = nextOrderId++;
+        order.side = random.nextBoolean() ? Side.BUY : Side.SELL;
+        order.brokerId = 1 + random.nextInt(profile.brokers());
+        order.shareholderId = 1 + random.nextInt(profile.shareholders());
+        order.quantity = quantity();
+        order.price = price(profile.midPrice());
+        if (random.nextDouble() < profile.icebergRatio())
+            order.peakSize = Math.max(1, order.quantity / 4);
+        int minimumExecutionQuantity = random.nextDouble() < profile.meqRatio() ? Math.max(1, order.quantity / 2) : 0;
+        liveOrders.add(order);
+        return EnterOrderRq.createNewOrderRq(requestId, order.isin, order.orderId, LocalDateTime.now(), order.side,
+                order.quantity, order.price, order.brokerId, order.shareholderId, order.peakSize, minimumExecutionQuantity);
+    }
+
+    private EnterOrderRq updateOrder(long requestId) {
+        LiveOrder order = liveOrders.get(random.nextInt(liveOrders.size()));
+        order.price = price(order.price);
+        if (random.nextBoolean())
+            order.quantity = quantity();
+        if (order.peakSize > 0)
+            order.peakSize = Math.max(1, Math.min(order.peakSize, order.quantity));
+        return EnterOrderRq.createUpdateOrderRq(requestId, order.isin, order.orderId, LocalDateTime.now(), order.side,
+                order.quantity, order.price, order.brokerId, order.shareholderId, order.peakSize);
+    }
+
+    private DeleteOrderRq deleteOrder(long requestId) {
+        int index = random.nextInt(liveOrders.size());
+        LiveOrder order = liveOrders.get(index);
+        liveOrders.set(index, liveOrders.get(liveOrders.size() - 1));
+        liveOrders.remove(liveOrders.size() - 1);
+        return new DeleteOrderRq(requestId, order.isin, order.side, order.orderId);
+    }
+
+    private int price(int around) {
+        return Math.max(1, around + (int) Math.round(random.nextGaussian() * profile.priceDeviation()));
+    }
+
+    private int quantity() {
+        return 1 + random.nextInt(2 * profile.meanQuantity());
+    }
+
+    private static class LiveOrder {
+        String isin;
+        long orderId;
+        Side side;
+        long brokerId;
+        long shareholderId;
+        int quantity;
+        int price;
+        int peakSize;
+    }
+}
@@ -0,0 +1,77 @@
+package ir.ramtung.tinyme.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+class RequestLog {
+    static final String TYPE_FIELD = "_type";
+    static final String OFFSET_FIELD = "_offsetNanos";
+    private static final String REQUEST_PACKAGE = EnterOrderRq.class.getPackageName();
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    static List<TimedRequest> readAll(Path path) throws IOException {
+        List<TimedRequest> requests = new ArrayList<>();
+        long lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (!line.isBlank())
+                    requests.add(parse(line, lineNumber));
+            }
+        }
+        return requests;
+    }
+
+    private static TimedRequest parse(String line, long lineNumber) {
+        try {
+            ObjectNode node = (ObjectNode) mapper.readTree(line);
+            JsonNode type = node.remove(TYPE_FIELD);
+            if (type == null)
+                throw new IllegalArgumentException("Line " + lineNumber + " has no " + TYPE_FIELD + " field");
+            JsonNode offset = node.remove(OFFSET_FIELD);
+            String className = type.asText().contains(".") ? type.asText() : REQUEST_PACKAGE + "." + type.asText();
+            Object request = mapper.treeToValue(node, Class.forName(className));
+            return new TimedRequest(offset == null ? 0 : offset.asLong(), request);
+        } catch (IOException | ClassNotFoundException ex) {
+            throw new IllegalArgumentException("Could not parse line " + lineNumber + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    static Writer write(Path path) throws IOException {
+        return new Writer(Files.newBufferedWriter(path));
+    }
+
+    static class Writer implements AutoCloseable {
+        private final BufferedWriter writer;
+
+        private Writer(BufferedWriter writer) {
+            this.writer = writer;
+        }
+
+        void append(TimedRequest timedRequest) throws IOException {
+            ObjectNode node = mapper.createObjectNode();
+            node.put(TYPE_FIELD, timedRequest.request().getClass().getSimpleName());
+            node.put(OFFSET_FIELD, timedRequest.offsetNanos());
+            node.setAll((ObjectNode) mapper.valueToTree(timedRequest.request()));
+            writer.write(mapper.writeValueAsString(node));
+            writer.newLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package ir.ramtung.tinyme.loadgen;
+
+import ir.ramtung.tinyme.domain.service.LatencyHistogram;
+
+interface Target extends AutoCloseable {
+    void submit(TimedRequest timedRequest, long scheduledNanos, LatencyHistogram histogram) throws Exception;
+
+    boolean drain(long timeoutMillis) throws InterruptedException;
+
+    long getResponses();
+
+    long getRejections();
+
+    @Override
+    void close() throws Exception;
+}
@@ -0,0 +1,17 @@
+package ir.ramtung.tinyme.loadgen;
+
+import ir.ramtung.tinyme.messaging.request.BatchOrderRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+
+record TimedRequest(long offsetNanos, Object request) {
+    long requestId() {
+        if (request instanceof EnterOrderRq enterOrderRq)
+            return enterOrderRq.getRequestId();
+        if (request instanceof DeleteOrderRq deleteOrderRq)
+            return deleteOrderRq.getRequestId();
+        if (request instanceof BatchOrderRq batchOrderRq)
+            return batchOrderRq.getRequestId();
+        throw new IllegalArgumentException("Unsupported request " + request.getClass().getName());
+    }
+}
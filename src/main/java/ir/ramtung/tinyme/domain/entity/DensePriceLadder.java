@@ -0,0 +1,116 @@
+package ir.ramtung.tinyme.domain.entity;
+
+class DensePriceLadder implements PriceLadder {
+    private final Side side;
+    private final int lowestPrice;
+    private final int highestPrice;
+    private final int tickSize;
+    private final PriceLevel[] levels;
+    private final SortedPriceLadder outOfBand;
+    private int best = -1;
+
+    DensePriceLadder(Side side, PriceBand band, int tickSize, int maxLevels) {
+        if (tickSize <= 0 || band.highestPrice() < band.lowestPrice())
+            throw new IllegalArgumentException("Invalid price band for a dense price ladder");
+        long levelCount = levelCount(band, tickSize);
+        if (levelCount > maxLevels)
+            throw new IllegalArgumentException("Price band of " + levelCount + " levels exceeds the dense ladder limit of " + maxLevels);
+        this.side = side;
+        this.lowestPrice = band.lowestPrice();
+        this.highestPrice = band.highestPrice();
+        this.tickSize = tickSize;
+        this.levels = new PriceLevel[(int) levelCount];
+        this.outOfBand = new SortedPriceLadder(side);
+    }
+
+    static long levelCount(PriceBand band, int tickSize) {
+        return ((long) band.highestPrice() - band.lowestPrice()) / tickSize + 1;
+    }
+
+    private int indexOf(int price) {
+        if (price < lowestPrice || price > highestPrice || ((long) price - lowestPrice) % tickSize != 0)
+            return -1;
+        return (int) (((long) price - lowestPrice) / tickSize);
+    }
+
+    private int worseStep() {
+        return side == Side.BUY ? -1 : 1;
+    }
+
+    private boolean isBetter(int price, int otherPrice) {
+        return side == Side.BUY ? price > otherPrice : price < otherPrice;
+    }
+
+    private boolean isBetterIndex(int index, int otherIndex) {
+        return side == Side.BUY ? index > otherIndex : index < otherIndex;
+    }
+
+    private int firstLevelFrom(int index) {
+        for (int i = index; i >= 0 && i < levels.length; i += worseStep()) {
+            if (levels[i] != null)
+                return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public PriceLevel getOrCreate(int price) {
+        int index = indexOf(price);
+        if (index < 0)
+            return outOfBand.getOrCreate(price);
+        if (levels[index] == null) {
+            levels[index] = new PriceLevel(price);
+            if (best < 0 || isBetterIndex(index, best))
+                best = index;
+        }
+        return levels[index];
+    }
+
+    @Override
+    public void remove(PriceLevel level) {
+        int index = indexOf(level.getPrice());
+        if (index < 0) {
+            outOfBand.remove(level);
+            return;
+        }
+        levels[index] = null;
+        if (index == best)
+            best = firstLevelFrom(best + worseStep());
+    }
+
+    @Override
+    public PriceLevel best() {
+        PriceLevel inBand = best < 0 ? null : levels[best];
+        return better(inBand, outOfBand.best());
+    }
+
+    @Override
+    public PriceLevel next(PriceLevel level) {
+        int price = level.getPrice();
+        int index;
+        if (isBetter(price, side == Side.BUY ? highestPrice : lowestPrice)) {
+            index = best;
+        } else if (price >= lowestPrice && price <= highestPrice) {
+            int offset = (int) (((long) price - lowestPrice) / tickSize);
+            boolean onTick = ((long) price - lowestPrice) % tickSize == 0;
+            index = firstLevelFrom(side == Side.BUY ? (onTick ? offset - 1 : offset) : offset + 1);
+        } else {
+            index = -1;
+        }
+        PriceLevel inBand = index < 0 ? null : levels[index];
+        return better(inBand, outOfBand.nextAfter(price));
+    }
+
+    private PriceLevel better(PriceLevel level, PriceLevel other) {
+        if (level == null)
+            return other;
+        if (other == null)
+            return level;
+        return isBetter(other.getPrice(), level.getPrice()) ? other : level;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return best < 0 && outOfBand.isEmpty();
+    }
+}
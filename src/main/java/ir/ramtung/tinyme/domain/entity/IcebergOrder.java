@@ -105,6 +105,11 @@ public class IcebergOrder extends Order {
                 OrderStatus.SNAPSHOT);
     }
 
+    @Override
+    public Order copy() {
+        return new IcebergOrder(orderId, security, side, initialQuantity, quantity, price, broker, shareholder, entryTime, peakSize, displayedQuantity, minimumExecutionQuantity, status);
+    }
+
     @Override
     public Order snapshotWithQuantity(int newQuantity) {
         return new IcebergOrder(orderId,
@@ -110,6 +110,10 @@ public class Order {
                 OrderStatus.SNAPSHOT);
     }
 
+    public Order copy() {
+        return new Order(orderId, security, side, initialQuantity, quantity, price, broker, shareholder, entryTime, minimumExecutionQuantity, status);
+    }
+
     public Order snapshotWithQuantity(int newQuantity) {
         return new Order(orderId,
                 security,
@@ -155,6 +159,10 @@ public class Order {
         return true;
     }
 
+    public boolean minimumExecutionQuantitySatisfiedBy(int tradedQuantity) {
+        return initialQuantity - (quantity - tradedQuantity) >= minimumExecutionQuantity;
+    }
+
     public void markAsQueued() {
         status = OrderStatus.QUEUED;
     }
@@ -1,72 +1,195 @@
 package ir.ramtung.tinyme.domain.entity;
 
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
 import lombok.Getter;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.function.Consumer;
 
-@Getter
 public class OrderBook {
-    private final LinkedList<Order> buyQueue;
-    private final LinkedList<Order> sellQueue;
+    public static final int DEFAULT_MAX_DENSE_LEVELS = 65536;
+
+    @Getter
+    private final PriceBand priceBand;
+    private final PriceLadder buyLevels;
+    private final PriceLadder sellLevels;
+    private final OrderIndex buyOrders;
+    private final OrderIndex sellOrders;
+    private final HashMap<Shareholder, Integer> sellQuantityByShareholder;
+    private OrderNode freeNodes;
 
     public OrderBook() {
-        buyQueue = new LinkedList<>();
-        sellQueue = new LinkedList<>();
+        this(new SortedPriceLadder(Side.BUY), new SortedPriceLadder(Side.SELL), null);
+    }
+
+    public OrderBook(PriceBand priceBand, int tickSize) {
+        this(priceBand, tickSize, DEFAULT_MAX_DENSE_LEVELS);
+    }
+
+    // A band wider than the limit keeps its price band but falls back to sorted ladders rather than allocating
+    // a level slot for every tick in it.
+    public OrderBook(PriceBand priceBand, int tickSize, int maxDenseLevels) {
+        this(ladder(Side.BUY, priceBand, tickSize, maxDenseLevels), ladder(Side.SELL, priceBand, tickSize, maxDenseLevels), priceBand);
+    }
+
+    private static PriceLadder ladder(Side side, PriceBand priceBand, int tickSize, int maxDenseLevels) {
+        if (tickSize > 0 && priceBand.highestPrice() >= priceBand.lowestPrice()
+                && DensePriceLadder.levelCount(priceBand, tickSize) > maxDenseLevels)
+            return new SortedPriceLadder(side);
+        return new DensePriceLadder(side, priceBand, tickSize, maxDenseLevels);
+    }
+
+    private OrderBook(PriceLadder buyLevels, PriceLadder sellLevels, PriceBand priceBand) {
+        this.priceBand = priceBand;
+        this.buyLevels = buyLevels;
+        this.sellLevels = sellLevels;
+        buyOrders = new OrderIndex();
+        sellOrders = new OrderIndex();
+        sellQuantityByShareholder = new HashMap<>();
     }
 
     public boolean enqueue(Order order) {
-        List<Order> queue = getQueue(order.getSide());
-        ListIterator<Order> it = queue.listIterator();
-        while (it.hasNext()) {
-            if (order.queuesBefore(it.next())) {
-                it.previous();
-                break;
+        append(getLevels(order.getSide()).getOrCreate(order.getPrice()), order);
+        return true;
+    }
+
+    public void bulkLoad(Collection<? extends Order> orders) {
+        List<Order> sorted = new ArrayList<>(orders);
+        sorted.sort(Comparator.comparing(Order::getSide)
+                .thenComparingInt(order -> order.getSide() == Side.BUY ? -order.getPrice() : order.getPrice()));
+        int buyCount = 0;
+        for (Order order : sorted)
+            if (order.getSide() == Side.BUY)
+                buyCount++;
+        buyOrders.ensureCapacity(buyOrders.size() + buyCount);
+        sellOrders.ensureCapacity(sellOrders.size() + sorted.size() - buyCount);
+        PriceLevel level = null;
+        Side side = null;
+        for (Order order : sorted) {
+            if (level == null || order.getSide() != side || order.getPrice() != level.getPrice()) {
+                side = order.getSide();
+                level = getLevels(side).getOrCreate(order.getPrice());
             }
+            append(level, order);
         }
-        it.add(order);
+    }
+
+    private void append(PriceLevel level, Order order) {
+        OrderNode node = acquireNode(order);
+        level.addLast(node);
+        getOrders(order.getSide()).put(order.getOrderId(), node);
+        addToSellQuantity(order, order.getTotalQuantity());
         order.markAsQueued();
-        return true;
+    }
+
+    private PriceLadder getLevels(Side side) {
+        return side == Side.BUY ? buyLevels : sellLevels;
+    }
+
+    private OrderIndex getOrders(Side side) {
+        return side == Side.BUY ? buyOrders : sellOrders;
+    }
+
+    private OrderNode acquireNode(Order order) {
+        OrderNode node = freeNodes;
+        if (node == null)
+            node = new OrderNode();
+        else
+            freeNodes = node.next;
+        node.next = null;
+        node.order = order;
+        return node;
+    }
+
+    private void releaseNode(OrderNode node) {
+        node.order = null;
+        node.level = null;
+        node.prev = null;
+        node.next = freeNodes;
+        freeNodes = node;
     }
 
     private LinkedList<Order> getQueue(Side side) {
-        return side == Side.BUY ? buyQueue : sellQueue;
+        LinkedList<Order> queue = new LinkedList<>();
+        PriceLadder levels = getLevels(side);
+        for (PriceLevel level = levels.best(); level != null; level = levels.next(level))
+            level.appendTo(queue);
+        return queue;
+    }
+
+    // The queues are copies of a whole side, meant for tests and inspection; engine code walks the book with
+    // forEachOrder or the price levels instead.
+    public LinkedList<Order> getBuyQueue() {
+        return getQueue(Side.BUY);
+    }
+
+    public LinkedList<Order> getSellQueue() {
+        return getQueue(Side.SELL);
+    }
+
+    public void forEachOrder(Side side, Consumer<? super Order> action) {
+        PriceLadder levels = getLevels(side);
+        for (PriceLevel level = levels.best(); level != null; level = levels.next(level))
+            level.forEach(action);
     }
 
     public Order findByOrderId(Side side, long orderId) {
-        var queue = getQueue(side);
-        for (Order order : queue) {
-            if (order.getOrderId() == orderId)
-                return order;
-        }
-        return null;
+        OrderNode node = getOrders(side).get(orderId);
+        return node == null ? null : node.order;
     }
 
     public boolean removeByOrderId(Side side, long orderId) {
-        var queue = getQueue(side);
-        var it = queue.listIterator();
-        while (it.hasNext()) {
-            if (it.next().getOrderId() == orderId) {
-                it.remove();
-                return true;
-            }
-        }
-        return false;
+        OrderNode node = getOrders(side).remove(orderId);
+        if (node == null)
+            return false;
+        unlink(side, node);
+        return true;
+    }
+
+    private void unlink(Side side, OrderNode node) {
+        addToSellQuantity(node.order, -node.order.getTotalQuantity());
+        PriceLevel level = node.level;
+        level.unlink(node);
+        if (level.isEmpty())
+            getLevels(side).remove(level);
+        releaseNode(node);
+    }
+
+    public PriceLevel getBestLevel(Side side) {
+        return getLevels(side).best();
+    }
+
+    public PriceLevel getNextLevel(Side side, PriceLevel level) {
+        return getLevels(side).next(level);
     }
 
     public Order matchWithFirst(Order newOrder) {
-        var queue = getQueue(newOrder.getSide().opposite());
-        if (newOrder.matches(queue.getFirst()))
-            return queue.getFirst();
+        Order first = getLevels(newOrder.getSide().opposite()).best().getFirst();
+        if (newOrder.matches(first))
+            return first;
         else
             return null;
     }
 
     public void putBack(Order order) {
-        LinkedList<Order> queue = getQueue(order.getSide());
         order.minimumExecutionQuantitySatisfied(); //why?
-        queue.addFirst(order);
+        OrderNode node = acquireNode(order);
+        getLevels(order.getSide()).getOrCreate(order.getPrice()).addFirst(node);
+        getOrders(order.getSide()).put(order.getOrderId(), node);
+        addToSellQuantity(order, order.getTotalQuantity());
+    }
+
+    public void requeue(Order order) {
+        OrderNode node = getOrders(order.getSide()).get(order.getOrderId());
+        PriceLevel level = node.level;
+        level.unlink(node);
+        level.addLast(node);
+        order.markAsQueued();
     }
 
     public void restoreOrder(Order order) {
@@ -75,17 +198,37 @@ public class OrderBook {
     }
 
     public boolean hasOrderOfType(Side side) {
-        return !getQueue(side).isEmpty();
+        return !getLevels(side).isEmpty();
     }
 
     public void removeFirst(Side side) {
-        getQueue(side).removeFirst();
+        OrderNode node = getLevels(side).best().getFirstNode();
+        getOrders(side).remove(node.order.getOrderId());
+        unlink(side, node);
+    }
+
+    public void decreaseQuantity(Order order, int amount) {
+        order.decreaseQuantity(amount);
+        addToSellQuantity(order, -amount);
+    }
+
+    public void updateOrder(Order order, EnterOrderRq updateOrderRq) {
+        int previousQuantity = order.getTotalQuantity();
+        order.updateFromRequest(updateOrderRq);
+        addToSellQuantity(order, order.getTotalQuantity() - previousQuantity);
+    }
+
+    private void addToSellQuantity(Order order, int amount) {
+        if (order.getSide() != Side.SELL || amount == 0)
+            return;
+        int total = sellQuantityByShareholder.getOrDefault(order.getShareholder(), 0) + amount;
+        if (total == 0)
+            sellQuantityByShareholder.remove(order.getShareholder());
+        else
+            sellQuantityByShareholder.put(order.getShareholder(), total);
     }
 
     public int totalSellQuantityByShareholder(Shareholder shareholder) {
-        return sellQueue.stream()
-                .filter(order -> order.getShareholder().equals(shareholder))
-                .mapToInt(Order::getTotalQuantity)
-                .sum();
+        return sellQuantityByShareholder.getOrDefault(shareholder, 0);
     }
 }
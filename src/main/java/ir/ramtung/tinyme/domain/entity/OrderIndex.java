@@ -0,0 +1,89 @@
+package ir.ramtung.tinyme.domain.entity;
+
+class OrderIndex {
+    private long[] keys;
+    private OrderNode[] nodes;
+    private int size;
+
+    OrderIndex() {
+        keys = new long[64];
+        nodes = new OrderNode[64];
+    }
+
+    private int slotOf(long orderId, int mask) {
+        long hash = orderId * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    int size() {
+        return size;
+    }
+
+    OrderNode get(long orderId) {
+        int mask = keys.length - 1;
+        for (int slot = slotOf(orderId, mask); nodes[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == orderId)
+                return nodes[slot];
+        }
+        return null;
+    }
+
+    void put(long orderId, OrderNode node) {
+        if (2 * (size + 1) > keys.length)
+            resize(2 * keys.length);
+        int mask = keys.length - 1;
+        int slot = slotOf(orderId, mask);
+        while (nodes[slot] != null) {
+            if (keys[slot] == orderId) {
+                nodes[slot] = node;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = orderId;
+        nodes[slot] = node;
+        size++;
+    }
+
+    void ensureCapacity(int expectedSize) {
+        int capacity = keys.length;
+        while (2 * expectedSize > capacity)
+            capacity *= 2;
+        if (capacity != keys.length)
+            resize(capacity);
+    }
+
+    OrderNode remove(long orderId) {
+        int mask = keys.length - 1;
+        int slot = slotOf(orderId, mask);
+        while (nodes[slot] != null && keys[slot] != orderId)
+            slot = (slot + 1) & mask;
+        OrderNode removed = nodes[slot];
+        if (removed == null)
+            return null;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; nodes[next] != null; next = (next + 1) & mask) {
+            int home = slotOf(keys[next], mask);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                nodes[hole] = nodes[next];
+                hole = next;
+            }
+        }
+        nodes[hole] = null;
+        size--;
+        return removed;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        OrderNode[] oldNodes = nodes;
+        keys = new long[capacity];
+        nodes = new OrderNode[capacity];
+        size = 0;
+        for (int i = 0; i < oldNodes.length; i++) {
+            if (oldNodes[i] != null)
+                put(oldKeys[i], oldNodes[i]);
+        }
+    }
+}
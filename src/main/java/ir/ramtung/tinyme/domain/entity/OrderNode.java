@@ -0,0 +1,8 @@
+package ir.ramtung.tinyme.domain.entity;
+
+class OrderNode {
+    Order order;
+    PriceLevel level;
+    OrderNode prev;
+    OrderNode next;
+}
@@ -0,0 +1,4 @@
+package ir.ramtung.tinyme.domain.entity;
+
+public record PriceBand(int lowestPrice, int highestPrice) {
+}
@@ -0,0 +1,13 @@
+package ir.ramtung.tinyme.domain.entity;
+
+interface PriceLadder {
+    PriceLevel getOrCreate(int price);
+
+    void remove(PriceLevel level);
+
+    PriceLevel best();
+
+    PriceLevel next(PriceLevel level);
+
+    boolean isEmpty();
+}
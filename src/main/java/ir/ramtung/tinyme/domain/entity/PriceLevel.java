@@ -0,0 +1,89 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import lombok.Getter;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+public class PriceLevel implements Iterable<Order> {
+    @Getter
+    private final int price;
+    private OrderNode head;
+    private OrderNode tail;
+
+    public PriceLevel(int price) {
+        this.price = price;
+    }
+
+    void addLast(OrderNode node) {
+        node.level = this;
+        node.prev = tail;
+        if (tail == null)
+            head = node;
+        else
+            tail.next = node;
+        tail = node;
+    }
+
+    void addFirst(OrderNode node) {
+        node.level = this;
+        node.next = head;
+        if (head == null)
+            tail = node;
+        else
+            head.prev = node;
+        head = node;
+    }
+
+    void unlink(OrderNode node) {
+        if (node.prev == null)
+            head = node.next;
+        else
+            node.prev.next = node.next;
+        if (node.next == null)
+            tail = node.prev;
+        else
+            node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    OrderNode getFirstNode() {
+        return head;
+    }
+
+    public Order getFirst() {
+        return head.order;
+    }
+
+    public boolean isEmpty() {
+        return head == null;
+    }
+
+    void appendTo(List<Order> queue) {
+        for (OrderNode node = head; node != null; node = node.next)
+            queue.add(node.order);
+    }
+
+    @Override
+    public Iterator<Order> iterator() {
+        return new Iterator<>() {
+            private OrderNode next = head;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Order next() {
+                if (next == null)
+                    throw new NoSuchElementException();
+                Order order = next.order;
+                next = next.next;
+                return order;
+            }
+        };
+    }
+}
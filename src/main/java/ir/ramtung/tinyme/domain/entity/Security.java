@@ -68,7 +68,7 @@ public class Security {
             order.getBroker().increaseCreditBy(order.getValue());
         }
         Order originalOrder = order.snapshot();
-        order.updateFromRequest(updateOrderRq);
+        orderBook.updateOrder(order, updateOrderRq);
         if (!losesPriority) {
             if (updateOrderRq.getSide() == Side.BUY) {
                 order.getBroker().decreaseCreditBy(order.getValue());
@@ -0,0 +1,44 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+class SortedPriceLadder implements PriceLadder {
+    private final TreeMap<Integer, PriceLevel> levels;
+
+    SortedPriceLadder(Side side) {
+        levels = side == Side.BUY ? new TreeMap<>(Comparator.reverseOrder()) : new TreeMap<>();
+    }
+
+    @Override
+    public PriceLevel getOrCreate(int price) {
+        return levels.computeIfAbsent(price, PriceLevel::new);
+    }
+
+    @Override
+    public void remove(PriceLevel level) {
+        levels.remove(level.getPrice());
+    }
+
+    @Override
+    public PriceLevel best() {
+        Map.Entry<Integer, PriceLevel> entry = levels.firstEntry();
+        return entry == null ? null : entry.getValue();
+    }
+
+    @Override
+    public PriceLevel next(PriceLevel level) {
+        return nextAfter(level.getPrice());
+    }
+
+    PriceLevel nextAfter(int price) {
+        Map.Entry<Integer, PriceLevel> entry = levels.higherEntry(price);
+        return entry == null ? null : entry.getValue();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return levels.isEmpty();
+    }
+}
@@ -1,11 +1,10 @@
 package ir.ramtung.tinyme.domain.entity;
 
-import lombok.Builder;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
-@Builder
 @Getter
 @EqualsAndHashCode
 @ToString
@@ -13,6 +12,22 @@ public class Trade {
     Security security;
     private int price;
     private int quantity;
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final Order buyOrder;
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final Order sellOrder;
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final int buyQuantity;
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final int sellQuantity;
     private Order buy;
     private Order sell;
 
@@ -20,15 +35,51 @@ public class Trade {
         this.security = security;
         this.price = price;
         this.quantity = quantity;
-        Order snapshot1 = order1.snapshot();
-        Order snapshot2 = order2.snapshot();
         if (order1.getSide() == Side.BUY) {
-            this.buy = snapshot1;
-            this.sell = snapshot2;
+            this.buyOrder = order1;
+            this.sellOrder = order2;
         } else {
-            this.buy = snapshot2;
-            this.sell = snapshot1;
+            this.buyOrder = order2;
+            this.sellOrder = order1;
         }
+        this.buyQuantity = buyOrder.getTotalQuantity();
+        this.sellQuantity = sellOrder.getTotalQuantity();
+    }
+
+    public Order getBuy() {
+        if (buy == null)
+            buy = buyOrder.snapshotWithQuantity(buyQuantity);
+        return buy;
+    }
+
+    public Order getSell() {
+        if (sell == null)
+            sell = sellOrder.snapshotWithQuantity(sellQuantity);
+        return sell;
+    }
+
+    public long getBuyOrderId() {
+        return buyOrder.getOrderId();
+    }
+
+    public long getSellOrderId() {
+        return sellOrder.getOrderId();
+    }
+
+    public Broker getBuyBroker() {
+        return buyOrder.getBroker();
+    }
+
+    public Broker getSellBroker() {
+        return sellOrder.getBroker();
+    }
+
+    public Shareholder getBuyShareholder() {
+        return buyOrder.getShareholder();
+    }
+
+    public Shareholder getSellShareholder() {
+        return sellOrder.getShareholder();
     }
 
     public long getTradedValue() {
@@ -36,15 +87,26 @@ public class Trade {
     }
 
     public void increaseSellersCredit() {
-        sell.getBroker().increaseCreditBy(getTradedValue());
+        sellOrder.getBroker().increaseCreditBy(getTradedValue());
+    }
+
+    public void decreaseSellersCredit() {
+        sellOrder.getBroker().decreaseCreditBy(getTradedValue());
     }
 
     public void decreaseBuyersCredit() {
-        buy.getBroker().decreaseCreditBy(getTradedValue());
+        buyOrder.getBroker().decreaseCreditBy(getTradedValue());
     }
 
     public boolean buyerHasEnoughCredit() {
-        return buy.getBroker().hasEnoughCredit(getTradedValue());
+        return buyOrder.getBroker().hasEnoughCredit(getTradedValue());
     }
 
+    public void increaseBuyersPosition() {
+        buyOrder.getShareholder().incPosition(security, quantity);
+    }
+
+    public void decreaseSellersPosition() {
+        sellOrder.getShareholder().decPosition(security, quantity);
+    }
 }
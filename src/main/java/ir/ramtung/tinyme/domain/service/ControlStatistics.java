@@ -0,0 +1,65 @@
+package ir.ramtung.tinyme.domain.service;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class ControlStatistics {
+    private static final int HOOKS = MatchingHook.values().length;
+
+    @Getter
+    private final MatchingControl control;
+    private final AtomicLongArray invocations = new AtomicLongArray(HOOKS);
+    private final AtomicLongArray nanos = new AtomicLongArray(HOOKS);
+    private final AtomicLongArray rejections = new AtomicLongArray(HOOKS);
+
+    public ControlStatistics(MatchingControl control) {
+        this.control = control;
+    }
+
+    public void record(MatchingHook hook, long elapsedNanos, boolean rejected) {
+        int index = hook.ordinal();
+        invocations.incrementAndGet(index);
+        nanos.addAndGet(index, elapsedNanos);
+        if (rejected)
+            rejections.incrementAndGet(index);
+    }
+
+    public long getInvocations(MatchingHook hook) {
+        return invocations.get(hook.ordinal());
+    }
+
+    public long getNanos(MatchingHook hook) {
+        return nanos.get(hook.ordinal());
+    }
+
+    public long getRejections(MatchingHook hook) {
+        return rejections.get(hook.ordinal());
+    }
+
+    public double getMeanNanos(MatchingHook hook) {
+        long calls = getInvocations(hook);
+        return calls == 0 ? 0 : (double) getNanos(hook) / calls;
+    }
+
+    public double getNanosPerRejection(MatchingHook hook) {
+        long rejected = getRejections(hook);
+        return rejected == 0 ? Double.POSITIVE_INFINITY : (double) getNanos(hook) / rejected;
+    }
+
+    public String getName() {
+        return control.getClass().getSimpleName();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(getName());
+        for (MatchingHook hook : MatchingHook.values())
+            if (getInvocations(hook) > 0)
+                builder.append(' ').append(hook.name().toLowerCase())
+                        .append("[calls=").append(getInvocations(hook))
+                        .append(" nanos=").append(getNanos(hook))
+                        .append(" rejections=").append(getRejections(hook)).append(']');
+        return builder.toString();
+    }
+}
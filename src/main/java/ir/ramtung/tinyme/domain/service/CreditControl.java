@@ -24,6 +24,17 @@ public class CreditControl implements MatchingControl {
         trade.increaseSellersCredit();
     }
 
+    @Override
+    public MatchingOutcome canAcceptPreview(Order order, MatchPreview preview) {
+        int remainingQuantity = preview.remainingQuantity(order);
+        if (order.getSide() == Side.BUY && remainingQuantity > 0) {
+            long requiredCredit = preview.tradedValue() - preview.tradedValueWithOwnBroker() + (long) order.getPrice() * remainingQuantity;
+            if (!order.getBroker().hasEnoughCredit(requiredCredit))
+                return MatchingOutcome.NOT_ENOUGH_CREDIT;
+        }
+        return MatchingOutcome.OK;
+    }
+
     @Override
     public MatchingOutcome canAcceptMatching(Order order, MatchResult result) {
         if (result.remainder().getQuantity() > 0) {
@@ -46,10 +57,10 @@ public class CreditControl implements MatchingControl {
     public void rollbackTrades(Order newOrder, LinkedList<Trade> trades) {
         if (newOrder.getSide() == Side.BUY) {
             newOrder.getBroker().increaseCreditBy(trades.stream().mapToLong(Trade::getTradedValue).sum());
-            trades.forEach(trade -> trade.getSell().getBroker().decreaseCreditBy(trade.getTradedValue()));
+            trades.forEach(Trade::decreaseSellersCredit);
         } else {
             newOrder.getBroker().decreaseCreditBy(trades.stream().mapToLong(Trade::getTradedValue).sum());
-            trades.forEach(trade -> trade.getSell().getBroker().increaseCreditBy(trade.getTradedValue()));
+            trades.forEach(Trade::increaseSellersCredit);
         }
     }
 }
@@ -0,0 +1,213 @@
+package ir.ramtung.tinyme.domain.service;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+
+@Component
+public class EngineMetrics implements EngineMetricsMXBean, SmartLifecycle {
+    private static final String DOMAIN = "ir.ramtung.tinyme";
+
+    public enum Stage {
+        DISPATCH, VALIDATION, LOOKUP, MATCHING, PUBLISH,
+        CAN_START_MATCHING, CAN_ACCEPT_PREVIEW, MATCHING_STARTED, CAN_ACCEPT_MATCHING, MATCHING_ACCEPTED,
+        TRADE_ACCEPTED, ROLLBACK_TRADES
+    }
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    @Getter
+    private final boolean enabled;
+    @Getter
+    private final boolean hookTimingEnabled;
+    private final long logIntervalMillis;
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+    private final AtomicLongArray outcomes = new AtomicLongArray(MatchingOutcome.values().length);
+    private final AtomicLong rejectedRequests = new AtomicLong();
+    private final Map<String, Object> exposed = new ConcurrentHashMap<>();
+    private final Object wakeup = new Object();
+    private Thread reporter;
+    private volatile boolean running;
+
+    public EngineMetrics(@Value("${metricsEnabled:true}") boolean enabled,
+                         @Value("${metricsHookTimingEnabled:false}") boolean hookTimingEnabled,
+                         @Value("${metricsLogIntervalMillis:60000}") long logIntervalMillis) {
+        this.enabled = enabled;
+        this.hookTimingEnabled = enabled && hookTimingEnabled;
+        this.logIntervalMillis = logIntervalMillis;
+        for (int i = 0; i < histograms.length; i++)
+            histograms[i] = new LatencyHistogram();
+    }
+
+    public long now() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public void record(Stage stage, long startNanos) {
+        if (enabled)
+            histograms[stage.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    public long hookNow() {
+        return hookTimingEnabled ? System.nanoTime() : 0;
+    }
+
+    public void recordHook(Stage stage, long startNanos) {
+        if (hookTimingEnabled)
+            histograms[stage.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    public void count(MatchingOutcome outcome) {
+        if (enabled)
+            outcomes.incrementAndGet(outcome.ordinal());
+    }
+
+    public void countRejection() {
+        if (enabled)
+            rejectedRequests.incrementAndGet();
+    }
+
+    public synchronized void expose(String properties, Object bean) {
+        exposed.put(properties, bean);
+        if (running) {
+            try {
+                register(ManagementFactory.getPlatformMBeanServer(), bean, objectName(properties));
+            } catch (JMException ex) {
+                log.warning("Could not register " + properties + " with JMX: " + ex);
+            }
+        }
+    }
+
+    public LatencyHistogram getHistogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    public long getOutcomeCount(MatchingOutcome outcome) {
+        return outcomes.get(outcome.ordinal());
+    }
+
+    @Override
+    public Map<String, Long> getOutcomes() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (MatchingOutcome outcome : MatchingOutcome.values())
+            counts.put(outcome.name(), outcomes.get(outcome.ordinal()));
+        return counts;
+    }
+
+    @Override
+    public long getRejectedRequests() {
+        return rejectedRequests.get();
+    }
+
+    @Override
+    public String getSummary() {
+        StringJoiner summary = new StringJoiner("; ");
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = histograms[stage.ordinal()];
+            if (histogram.getCount() > 0)
+                summary.add(String.format("%s count=%d p50=%dns p99=%dns p99.9=%dns max=%dns", stage.name().toLowerCase(),
+                        histogram.getCount(), histogram.getP50(), histogram.getP99(), histogram.getP999(), histogram.getMax()));
+        }
+        summary.add("outcomes=" + getOutcomes() + " rejected=" + rejectedRequests.get());
+        return summary.toString();
+    }
+
+    private void report() {
+        while (running) {
+            synchronized (wakeup) {
+                try {
+                    if (running)
+                        wakeup.wait(logIntervalMillis);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+            }
+            if (running)
+                log.info("Engine metrics: " + getSummary());
+        }
+    }
+
+    private static ObjectName objectName(String properties) throws JMException {
+        return new ObjectName(DOMAIN + ":" + properties);
+    }
+
+    private static void register(MBeanServer server, Object bean, ObjectName name) throws JMException {
+        if (server.isRegistered(name))
+            server.unregisterMBean(name);
+        server.registerMBean(bean, name);
+    }
+
+    private static void unregister(MBeanServer server, ObjectName name) throws JMException {
+        if (server.isRegistered(name))
+            server.unregisterMBean(name);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running)
+            return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (enabled) {
+                register(server, this, objectName("type=EngineMetrics"));
+                for (Stage stage : Stage.values())
+                    register(server, histograms[stage.ordinal()], objectName("type=Latency,stage=" + stage.name().toLowerCase()));
+            }
+            for (Map.Entry<String, Object> bean : exposed.entrySet())
+                register(server, bean.getValue(), objectName(bean.getKey()));
+        } catch (JMException ex) {
+            log.warning("Could not register engine metrics with JMX: " + ex);
+        }
+        running = true;
+        if (enabled && logIntervalMillis > 0) {
+            reporter = new Thread(this::report, "metrics-reporter");
+            reporter.setDaemon(true);
+            reporter.start();
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running)
+            return;
+        synchronized (wakeup) {
+            running = false;
+            wakeup.notifyAll();
+        }
+        if (reporter != null) {
+            try {
+                reporter.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            reporter = null;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            unregister(server, objectName("type=EngineMetrics"));
+            for (Stage stage : Stage.values())
+                unregister(server, objectName("type=Latency,stage=" + stage.name().toLowerCase()));
+            for (String properties : exposed.keySet())
+                unregister(server, objectName(properties));
+        } catch (JMException ex) {
+            log.warning("Could not unregister engine metrics from JMX: " + ex);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,9 @@
+package ir.ramtung.tinyme.domain.service;
+
+import java.util.Map;
+
+public interface EngineMetricsMXBean {
+    Map<String, Long> getOutcomes();
+    long getRejectedRequests();
+    String getSummary();
+}
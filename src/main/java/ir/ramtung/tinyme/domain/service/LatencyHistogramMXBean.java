@@ -0,0 +1,10 @@
+package ir.ramtung.tinyme.domain.service;
+
+public interface LatencyHistogramMXBean {
+    long getCount();
+    double getMean();
+    long getP50();
+    long getP99();
+    long getP999();
+    long getMax();
+}
@@ -0,0 +1,13 @@
+package ir.ramtung.tinyme.domain.service;
+
+import ir.ramtung.tinyme.domain.entity.Order;
+
+public record MatchPreview(
+    int tradedQuantity,
+    long tradedValue,
+    long tradedValueWithOwnBroker) {
+
+    public int remainingQuantity(Order order) {
+        return order.getTotalQuantity() - tradedQuantity;
+    }
+}
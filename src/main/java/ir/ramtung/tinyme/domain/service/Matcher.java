@@ -33,19 +33,63 @@ public class Matcher {
 
             if (newOrder.getQuantity() >= matchingOrder.getQuantity()) {
                 newOrder.decreaseQuantity(matchingOrder.getQuantity());
-                orderBook.removeFirst(matchingOrder.getSide());
-                if (matchingOrder instanceof IcebergOrder icebergOrder) {
-                    icebergOrder.decreaseQuantity(matchingOrder.getQuantity());
+                if (matchingOrder instanceof IcebergOrder icebergOrder
+                        && icebergOrder.getTotalQuantity() > icebergOrder.getQuantity()) {
+                    orderBook.decreaseQuantity(icebergOrder, icebergOrder.getQuantity());
                     icebergOrder.replenish();
-                    if (icebergOrder.getQuantity() > 0)
-                        orderBook.enqueue(icebergOrder);
+                    orderBook.requeue(icebergOrder);
+                } else {
+                    orderBook.removeFirst(matchingOrder.getSide());
                 }
             } else {
-                matchingOrder.decreaseQuantity(newOrder.getQuantity());
+                orderBook.decreaseQuantity(matchingOrder, newOrder.getQuantity());
                 newOrder.makeQuantityZero();
             }
         }
-        return MatchResult.executed(newOrder, trades);
+        return new MatchResult(MatchingOutcome.OK, newOrder, trades);
+    }
+
+    public MatchPreview preview(Order newOrder) {
+        OrderBook orderBook = newOrder.getSecurity().getOrderBook();
+        Side side = newOrder.getSide().opposite();
+        int remaining = newOrder.getQuantity();
+        int tradedQuantity = 0;
+        long tradedValue = 0;
+        long tradedValueWithOwnBroker = 0;
+
+        PriceLevel level = orderBook.getBestLevel(side);
+        while (level != null && remaining > 0 && newOrder.matches(level.getFirst())) {
+            for (int round = 0; remaining > 0; round++) {
+                boolean filledAny = false;
+                for (Order matchingOrder : level) {
+                    if (remaining == 0)
+                        break;
+                    int available = availableInRound(matchingOrder, round);
+                    if (available <= 0)
+                        continue;
+                    int quantity = Math.min(remaining, available);
+                    remaining -= quantity;
+                    tradedQuantity += quantity;
+                    tradedValue += (long) level.getPrice() * quantity;
+                    if (matchingOrder.getBroker() == newOrder.getBroker())
+                        tradedValueWithOwnBroker += (long) level.getPrice() * quantity;
+                    filledAny = true;
+                }
+                if (!filledAny)
+                    break;
+            }
+            level = orderBook.getNextLevel(side, level);
+        }
+        return new MatchPreview(tradedQuantity, tradedValue, tradedValueWithOwnBroker);
+    }
+
+    private int availableInRound(Order order, int round) {
+        if (round == 0)
+            return order.getQuantity();
+        if (!(order instanceof IcebergOrder icebergOrder))
+            return 0;
+        int hidden = icebergOrder.getTotalQuantity() - icebergOrder.getQuantity() - (round - 1) * icebergOrder.getPeakSize();
+        return Math.min(hidden, icebergOrder.getPeakSize());
     }
 
     private void rollbackTrades(Order newOrder, LinkedList<Trade> trades) {
@@ -63,6 +107,10 @@ public class Matcher {
         if (outcome != MatchingOutcome.OK)
             return new MatchResult(outcome, order);
 
+        outcome = controls.canAcceptPreview(order, preview(order));
+        if (outcome != MatchingOutcome.OK)
+            return new MatchResult(outcome, order);
+
         controls.matchingStarted(order);
 
         MatchResult result = match(order);
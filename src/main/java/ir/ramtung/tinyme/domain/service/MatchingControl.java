@@ -7,6 +7,7 @@ import java.util.LinkedList;
 
 public interface MatchingControl {
     default MatchingOutcome canStartMatching(Order order) { return MatchingOutcome.OK; }
+    default MatchingOutcome canAcceptPreview(Order order, MatchPreview preview) { return MatchingOutcome.OK; }
     default void matchingStarted(Order order) {}
     default MatchingOutcome canAcceptMatching(Order order, MatchResult result) { return MatchingOutcome.OK; }
     default void matchingAccepted(Order order, MatchResult result) {}
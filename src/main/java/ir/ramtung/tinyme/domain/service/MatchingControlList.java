@@ -2,58 +2,245 @@ package ir.ramtung.tinyme.domain.service;
 
 import ir.ramtung.tinyme.domain.entity.Order;
 import ir.ramtung.tinyme.domain.entity.Trade;
+import ir.ramtung.tinyme.domain.service.EngineMetrics.Stage;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 @Component
-public class MatchingControlList {
+public class MatchingControlList implements MatchingControlListMXBean {
+    private static final MatchingHook[] ORDERED_HOOKS = {
+            MatchingHook.CAN_START_MATCHING, MatchingHook.CAN_ACCEPT_PREVIEW, MatchingHook.CAN_ACCEPT_MATCHING
+    };
+
     @Autowired
     private List<MatchingControl> controlList;
+    @Autowired
+    private EngineMetrics metrics;
+    @Value("${controlStatisticsEnabled:false}")
+    private boolean statisticsEnabled;
+    @Value("${adaptiveControlOrderingEnabled:false}")
+    private boolean adaptiveOrdering;
+    @Value("${controlReorderInterval:4096}")
+    private int reorderInterval;
+
+    private MatchingControl[] startMatchingControls;
+    private MatchingControl[] previewControls;
+    private MatchingControl[] startedControls;
+    private MatchingControl[] acceptMatchingControls;
+    private MatchingControl[] acceptedControls;
+    private MatchingControl[] tradeControls;
+    private MatchingControl[] rollbackControls;
+    private ControlStatistics[] statistics;
+    private final AtomicReferenceArray<int[]> order = new AtomicReferenceArray<>(MatchingHook.values().length);
+    private final AtomicLongArray checks = new AtomicLongArray(MatchingHook.values().length);
+
+    @PostConstruct
+    void setup() {
+        startMatchingControls = pipeline(MatchingHook.CAN_START_MATCHING);
+        previewControls = pipeline(MatchingHook.CAN_ACCEPT_PREVIEW);
+        startedControls = pipeline(MatchingHook.MATCHING_STARTED);
+        acceptMatchingControls = pipeline(MatchingHook.CAN_ACCEPT_MATCHING);
+        acceptedControls = pipeline(MatchingHook.MATCHING_ACCEPTED);
+        tradeControls = pipeline(MatchingHook.TRADE_ACCEPTED);
+        rollbackControls = pipeline(MatchingHook.ROLLBACK_TRADES);
+        adaptiveOrdering = adaptiveOrdering && reorderInterval > 0;
+        if (!statisticsEnabled && !adaptiveOrdering)
+            return;
+        statistics = new ControlStatistics[controlList.size()];
+        for (int i = 0; i < statistics.length; i++)
+            statistics[i] = new ControlStatistics(controlList.get(i));
+        for (MatchingHook hook : MatchingHook.values()) {
+            int[] implementing = new int[statistics.length];
+            int count = 0;
+            for (int i = 0; i < statistics.length; i++)
+                if (hook.isImplementedBy(statistics[i].getControl()))
+                    implementing[count++] = i;
+            order.set(hook.ordinal(), Arrays.copyOf(implementing, count));
+        }
+        metrics.expose("type=MatchingControls", this);
+    }
 
     public MatchingOutcome canStartMatching(Order order) {
-        for (MatchingControl control : controlList) {
-            MatchingOutcome outcome = control.canStartMatching(order);
-            if (outcome != MatchingOutcome.OK)
-                return outcome;
+        long start = metrics.hookNow();
+        try {
+            if (statistics != null)
+                return check(MatchingHook.CAN_START_MATCHING, order, null, (control, o, ignored) -> control.canStartMatching(o));
+            for (MatchingControl control : startMatchingControls) {
+                MatchingOutcome outcome = control.canStartMatching(order);
+                if (outcome != MatchingOutcome.OK)
+                    return outcome;
+            }
+            return MatchingOutcome.OK;
+        } finally {
+            metrics.recordHook(Stage.CAN_START_MATCHING, start);
         }
-        return MatchingOutcome.OK;
     }
-    public void matchingStarted(Order order) {
-        for (MatchingControl control : controlList) {
-            control.matchingStarted(order);
+    public MatchingOutcome canAcceptPreview(Order order, MatchPreview preview) {
+        long start = metrics.hookNow();
+        try {
+            if (statistics != null)
+                return check(MatchingHook.CAN_ACCEPT_PREVIEW, order, preview, MatchingControl::canAcceptPreview);
+            for (MatchingControl control : previewControls) {
+                MatchingOutcome outcome = control.canAcceptPreview(order, preview);
+                if (outcome != MatchingOutcome.OK)
+                    return outcome;
+            }
+            return MatchingOutcome.OK;
+        } finally {
+            metrics.recordHook(Stage.CAN_ACCEPT_PREVIEW, start);
         }
     }
+    public void matchingStarted(Order order) {
+        long start = metrics.hookNow();
+        if (statistics != null)
+            notify(MatchingHook.MATCHING_STARTED, order, null, (control, o, ignored) -> control.matchingStarted(o));
+        else
+            for (MatchingControl control : startedControls) {
+                control.matchingStarted(order);
+            }
+        metrics.recordHook(Stage.MATCHING_STARTED, start);
+    }
     public MatchingOutcome canAcceptMatching(Order order, MatchResult result) {
-        for (MatchingControl control : controlList) {
-            MatchingOutcome outcome = control.canAcceptMatching(order, result);
-            if (outcome != MatchingOutcome.OK) {
-                return outcome;
+        long start = metrics.hookNow();
+        try {
+            if (statistics != null)
+                return check(MatchingHook.CAN_ACCEPT_MATCHING, order, result, MatchingControl::canAcceptMatching);
+            for (MatchingControl control : acceptMatchingControls) {
+                MatchingOutcome outcome = control.canAcceptMatching(order, result);
+                if (outcome != MatchingOutcome.OK) {
+                    return outcome;
+                }
             }
+            return MatchingOutcome.OK;
+        } finally {
+            metrics.recordHook(Stage.CAN_ACCEPT_MATCHING, start);
         }
-        return MatchingOutcome.OK;
     }
     public void matchingAccepted(Order order, MatchResult result) {
-        for (MatchingControl control : controlList) {
-            control.matchingAccepted(order, result);
-        }
+        long start = metrics.hookNow();
+        if (statistics != null)
+            notify(MatchingHook.MATCHING_ACCEPTED, order, result, MatchingControl::matchingAccepted);
+        else
+            for (MatchingControl control : acceptedControls) {
+                control.matchingAccepted(order, result);
+            }
+        metrics.recordHook(Stage.MATCHING_ACCEPTED, start);
     }
 
     public MatchingOutcome canTrade(Order newOrder, Trade trade) { return MatchingOutcome.OK; }
 
     public void tradeAccepted(Order newOrder, Trade trade) {
-        for (MatchingControl control : controlList) {
-            control.tradeAccepted(newOrder, trade);
-        }
+        long start = metrics.hookNow();
+        if (statistics != null)
+            notify(MatchingHook.TRADE_ACCEPTED, newOrder, trade, MatchingControl::tradeAccepted);
+        else
+            for (MatchingControl control : tradeControls) {
+                control.tradeAccepted(newOrder, trade);
+            }
+        metrics.recordHook(Stage.TRADE_ACCEPTED, start);
     }
 
     public void rollbackTrades(Order newOrder, LinkedList<Trade> trades) {
-        for (MatchingControl control2 : controlList) {
-            control2.rollbackTrades(newOrder, trades);
+        long start = metrics.hookNow();
+        if (statistics != null)
+            notify(MatchingHook.ROLLBACK_TRADES, newOrder, trades, MatchingControl::rollbackTrades);
+        else
+            for (MatchingControl control2 : rollbackControls) {
+                control2.rollbackTrades(newOrder, trades);
+            }
+        metrics.recordHook(Stage.ROLLBACK_TRADES, start);
+    }
+
+    public ControlStatistics getStatistics(Class<? extends MatchingControl> type) {
+        if (statistics != null)
+            for (ControlStatistics controlStatistics : statistics)
+                if (type.isInstance(controlStatistics.getControl()))
+                    return controlStatistics;
+        return null;
+    }
+
+    public List<MatchingControl> getOrder(MatchingHook hook) {
+        if (statistics == null)
+            return List.of(pipeline(hook));
+        List<MatchingControl> controls = new ArrayList<>();
+        for (int index : order.get(hook.ordinal()))
+            controls.add(statistics[index].getControl());
+        return controls;
+    }
+
+    @Override
+    public List<String> getControlStatistics() {
+        List<String> lines = new ArrayList<>();
+        if (statistics != null)
+            for (ControlStatistics controlStatistics : statistics)
+                lines.add(controlStatistics.toString());
+        return lines;
+    }
+
+    @Override
+    public Map<String, String> getControlOrder() {
+        Map<String, String> orders = new LinkedHashMap<>();
+        for (MatchingHook hook : ORDERED_HOOKS) {
+            StringJoiner names = new StringJoiner(",");
+            for (MatchingControl control : getOrder(hook))
+                names.add(control.getClass().getSimpleName());
+            orders.put(hook.name().toLowerCase(), names.toString());
+        }
+        return orders;
+    }
+
+    private <T> MatchingOutcome check(MatchingHook hook, Order order, T argument, OutcomeHook<T> call) {
+        MatchingOutcome result = MatchingOutcome.OK;
+        for (int index : this.order.get(hook.ordinal())) {
+            long start = System.nanoTime();
+            MatchingOutcome outcome = call.apply(statistics[index].getControl(), order, argument);
+            statistics[index].record(hook, System.nanoTime() - start, outcome != MatchingOutcome.OK);
+            if (outcome != MatchingOutcome.OK) {
+                result = outcome;
+                break;
+            }
         }
+        if (adaptiveOrdering && checks.incrementAndGet(hook.ordinal()) % reorderInterval == 0)
+            reorder(hook);
+        return result;
+    }
+
+    private <T> void notify(MatchingHook hook, Order order, T argument, NotificationHook<T> call) {
+        for (int index : this.order.get(hook.ordinal())) {
+            long start = System.nanoTime();
+            call.apply(statistics[index].getControl(), order, argument);
+            statistics[index].record(hook, System.nanoTime() - start, false);
+        }
+    }
 
+    private void reorder(MatchingHook hook) {
+        int[] current = order.get(hook.ordinal());
+        Integer[] ranked = new Integer[current.length];
+        for (int i = 0; i < ranked.length; i++)
+            ranked[i] = current[i];
+        Arrays.sort(ranked, Comparator.<Integer>comparingDouble(i -> statistics[i].getNanosPerRejection(hook))
+                .thenComparingDouble(i -> statistics[i].getMeanNanos(hook)));
+        int[] sequence = new int[ranked.length];
+        for (int i = 0; i < sequence.length; i++)
+            sequence[i] = ranked[i];
+        order.set(hook.ordinal(), sequence);
     }
 
+    private MatchingControl[] pipeline(MatchingHook hook) {
+        return controlList.stream().filter(hook::isImplementedBy).toArray(MatchingControl[]::new);
+    }
+
+    private interface OutcomeHook<T> {
+        MatchingOutcome apply(MatchingControl control, Order order, T argument);
+    }
+
+    private interface NotificationHook<T> {
+        void apply(MatchingControl control, Order order, T argument);
+    }
 }
@@ -0,0 +1,9 @@
+package ir.ramtung.tinyme.domain.service;
+
+import java.util.List;
+import java.util.Map;
+
+public interface MatchingControlListMXBean {
+    List<String> getControlStatistics();
+    Map<String, String> getControlOrder();
+}
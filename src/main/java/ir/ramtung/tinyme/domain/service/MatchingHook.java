@@ -0,0 +1,32 @@
+package ir.ramtung.tinyme.domain.service;
+
+import ir.ramtung.tinyme.domain.entity.Order;
+import ir.ramtung.tinyme.domain.entity.Trade;
+
+import java.util.LinkedList;
+
+public enum MatchingHook {
+    CAN_START_MATCHING("canStartMatching", Order.class),
+    CAN_ACCEPT_PREVIEW("canAcceptPreview", Order.class, MatchPreview.class),
+    MATCHING_STARTED("matchingStarted", Order.class),
+    CAN_ACCEPT_MATCHING("canAcceptMatching", Order.class, MatchResult.class),
+    MATCHING_ACCEPTED("matchingAccepted", Order.class, MatchResult.class),
+    TRADE_ACCEPTED("tradeAccepted", Order.class, Trade.class),
+    ROLLBACK_TRADES("rollbackTrades", Order.class, LinkedList.class);
+
+    private final String methodName;
+    private final Class<?>[] parameterTypes;
+
+    MatchingHook(String methodName, Class<?>... parameterTypes) {
+        this.methodName = methodName;
+        this.parameterTypes = parameterTypes;
+    }
+
+    public boolean isImplementedBy(MatchingControl control) {
+        try {
+            return control.getClass().getMethod(methodName, parameterTypes).getDeclaringClass() != MatchingControl.class;
+        } catch (NoSuchMethodException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package ir.ramtung.tinyme.domain.service;
+
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.Message;
+import ir.ramtung.tinyme.messaging.event.BatchEvent;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.event.OrderRejectedEvent;
+import ir.ramtung.tinyme.messaging.request.BatchOrderEntry;
+import ir.ramtung.tinyme.messaging.request.BatchOrderRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.RequestJournal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+@Component
+public class MatchingShards implements SmartLifecycle {
+    private static final int BROKER_LOCK_STRIPES = Long.SIZE;
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final OrderHandler orderHandler;
+    private final EventPublisher eventPublisher;
+    private final RequestJournal requestJournal;
+    private final ExecutorService[] shards;
+    private final ReentrantLock[] brokerLocks;
+    private final ReentrantLock inlineLock = new ReentrantLock();
+    private volatile boolean running;
+
+    public MatchingShards(OrderHandler orderHandler, EventPublisher eventPublisher, RequestJournal requestJournal, @Value("${matchingShards:0}") int shardCount) {
+        this.orderHandler = orderHandler;
+        this.eventPublisher = eventPublisher;
+        this.requestJournal = requestJournal;
+        this.shards = new ExecutorService[Math.max(shardCount, 0)];
+        for (int i = 0; i < shards.length; i++) {
+            String name = "matching-shard-" + i;
+            shards[i] = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, name));
+        }
+        this.brokerLocks = new ReentrantLock[BROKER_LOCK_STRIPES];
+        for (int i = 0; i < brokerLocks.length; i++)
+            brokerLocks[i] = new ReentrantLock();
+    }
+
+    public boolean isSharded() {
+        return shards.length > 0;
+    }
+
+    public void enterOrder(EnterOrderRq enterOrderRq) {
+        dispatch(enterOrderRq.getSecurityIsin(), rejecting(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), eventPublisher::publish,
+                () -> journaled(enterOrderRq, () -> orderHandler.handleEnterOrder(enterOrderRq))));
+    }
+
+    public void enterOrder(EnterOrderRq enterOrderRq, Consumer<Event> publisher) {
+        dispatch(enterOrderRq.getSecurityIsin(), rejecting(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), publisher,
+                () -> journaled(enterOrderRq, () -> orderHandler.handleEnterOrder(enterOrderRq, orderHandler.validateEnterOrderRq(enterOrderRq), publisher))));
+    }
+
+    public void deleteOrder(DeleteOrderRq deleteOrderRq) {
+        dispatch(deleteOrderRq.getSecurityIsin(), rejecting(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId(), eventPublisher::publish,
+                () -> journaled(deleteOrderRq, () -> orderHandler.handleDeleteOrder(deleteOrderRq))));
+    }
+
+    public void deleteOrder(DeleteOrderRq deleteOrderRq, Consumer<Event> publisher) {
+        dispatch(deleteOrderRq.getSecurityIsin(), rejecting(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId(), publisher,
+                () -> journaled(deleteOrderRq, () -> orderHandler.handleDeleteOrder(deleteOrderRq, orderHandler.validateDeleteOrderRq(deleteOrderRq), publisher))));
+    }
+
+    public void batchOrder(BatchOrderRq batchOrderRq) {
+        if (!isSharded()) {
+            dispatch(null, rejecting(batchOrderRq.getRequestId(), 0, eventPublisher::publish, () -> {
+                requestJournal.append(batchOrderRq);
+                orderHandler.handleBatchOrder(batchOrderRq);
+            }));
+            return;
+        }
+        List<List<String>> validationErrors = orderHandler.validateBatchOrderRq(batchOrderRq);
+        if (validationErrors.isEmpty()) {
+            eventPublisher.publish(new BatchEvent(batchOrderRq.getRequestId(), List.of()));
+            return;
+        }
+        List<List<Event>> entryEvents = new ArrayList<>(validationErrors.size());
+        AtomicInteger pending = new AtomicInteger(validationErrors.size());
+        for (int i = 0; i < validationErrors.size(); i++) {
+            int index = i;
+            List<Event> events = new ArrayList<>(2);
+            entryEvents.add(events);
+            BatchOrderEntry entry = batchOrderRq.getEntries().get(index);
+            Runnable handle = () -> orderHandler.handleBatchEntry(batchOrderRq, index, validationErrors.get(index), events::add);
+            Runnable task = rejecting(batchOrderRq.getRequestId(), orderIdOf(entry), events::add, () -> {
+                if (entry != null && entry.getEnterOrderRq() != null && entry.getDeleteOrderRq() == null)
+                    journaled(entry.getEnterOrderRq(), handle);
+                else if (entry != null && entry.getDeleteOrderRq() != null && entry.getEnterOrderRq() == null)
+                    journaled(entry.getDeleteOrderRq(), handle);
+                else
+                    handle.run();
+            });
+            dispatch(entry == null ? null : entry.getSecurityIsin(), () -> {
+                try {
+                    task.run();
+                } finally {
+                    if (pending.decrementAndGet() == 0)
+                        publishBatch(batchOrderRq, entryEvents);
+                }
+            });
+        }
+    }
+
+    private static long orderIdOf(BatchOrderEntry entry) {
+        if (entry != null && entry.getEnterOrderRq() != null)
+            return entry.getEnterOrderRq().getOrderId();
+        if (entry != null && entry.getDeleteOrderRq() != null)
+            return entry.getDeleteOrderRq().getOrderId();
+        return 0;
+    }
+
+    // A request that fails while being matched still gets an answer, through the same publisher its other
+    // events would have gone to.
+    private Runnable rejecting(long requestId, long orderId, Consumer<Event> publisher, Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                log.severe("Request " + requestId + " failed: " + ex);
+                publisher.accept(new OrderRejectedEvent(requestId, orderId, List.of(Message.REQUEST_PROCESSING_FAILED)));
+            }
+        };
+    }
+
+    private void publishBatch(BatchOrderRq batchOrderRq, List<List<Event>> entryEvents) {
+        List<Event> events = new ArrayList<>();
+        entryEvents.forEach(events::addAll);
+        eventPublisher.publish(new BatchEvent(batchOrderRq.getRequestId(), events));
+    }
+
+    // Trades and their rollbacks change the credit of the resting orders' brokers too, and a delete refunds the
+    // credit of its order's broker, so every broker the request can reach is locked, in stripe order to stay
+    // deadlock free across shards. Journaling under those locks records the request after every request whose
+    // outcome it could depend on, so replaying the journal in order reproduces what the shards did.
+    private void journaled(EnterOrderRq enterOrderRq, Runnable task) {
+        long[] stripes = {stripeOf(enterOrderRq.getBrokerId())};
+        orderHandler.forEachBrokerTouchedBy(enterOrderRq, broker -> stripes[0] |= stripeOf(broker.getBrokerId()));
+        journaled(enterOrderRq, stripes[0], task);
+    }
+
+    private void journaled(DeleteOrderRq deleteOrderRq, Runnable task) {
+        long[] stripes = {0};
+        orderHandler.forEachBrokerTouchedBy(deleteOrderRq, broker -> stripes[0] |= stripeOf(broker.getBrokerId()));
+        journaled(deleteOrderRq, stripes[0], task);
+    }
+
+    private void journaled(Object request, long stripes, Runnable task) {
+        for (long remaining = stripes; remaining != 0; remaining &= remaining - 1)
+            brokerLocks[Long.numberOfTrailingZeros(remaining)].lock();
+        try {
+            requestJournal.append(request);
+            task.run();
+        } finally {
+            for (long remaining = stripes; remaining != 0; remaining &= remaining - 1)
+                brokerLocks[Long.numberOfTrailingZeros(remaining)].unlock();
+        }
+    }
+
+    private long stripeOf(long brokerId) {
+        return 1L << Math.floorMod(Long.hashCode(brokerId), brokerLocks.length);
+    }
+
+    // Without shards, requests run on the listener containers' and the gateway's own threads, so they take
+    // turns on one lock to keep the books single-writer.
+    private void dispatch(String securityIsin, Runnable task) {
+        if (!isSharded()) {
+            inlineLock.lock();
+            try {
+                task.run();
+            } finally {
+                inlineLock.unlock();
+            }
+            return;
+        }
+        shards[Math.floorMod(Objects.hashCode(securityIsin), shards.length)].execute(task);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        for (ExecutorService shard : shards)
+            shard.shutdown();
+        try {
+            for (ExecutorService shard : shards) {
+                if (!shard.awaitTermination(10, TimeUnit.SECONDS))
+                    log.warning("Matching shard did not drain in time");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 1024;
+    }
+}
@@ -5,6 +5,12 @@ import org.springframework.stereotype.Component;
 
 @Component
 public class MinimumExecutionQuantityControl implements MatchingControl {
+    public MatchingOutcome canAcceptPreview(Order order, MatchPreview preview) {
+        if (order.minimumExecutionQuantitySatisfiedBy(preview.tradedQuantity()))
+            return MatchingOutcome.OK;
+        else return MatchingOutcome.MINIMUM_QUANTITY_NOT_SATISFIED;
+    }
+
     public MatchingOutcome canAcceptMatching(Order order, MatchResult result) {
         if (order.minimumExecutionQuantitySatisfied())
             return MatchingOutcome.OK;
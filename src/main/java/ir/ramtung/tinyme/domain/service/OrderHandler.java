@@ -1,21 +1,28 @@
 package ir.ramtung.tinyme.domain.service;
 
 import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.EngineMetrics.Stage;
 import ir.ramtung.tinyme.messaging.Message;
 import ir.ramtung.tinyme.messaging.exception.InvalidRequestException;
 import ir.ramtung.tinyme.messaging.EventPublisher;
 import ir.ramtung.tinyme.messaging.TradeDTO;
 import ir.ramtung.tinyme.messaging.event.*;
+import ir.ramtung.tinyme.messaging.request.BatchOrderEntry;
+import ir.ramtung.tinyme.messaging.request.BatchOrderRq;
 import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
 import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
 import ir.ramtung.tinyme.messaging.request.OrderEntryType;
 import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.CheckpointService;
 import ir.ramtung.tinyme.repository.SecurityRepository;
 import ir.ramtung.tinyme.repository.ShareholderRepository;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,61 +32,207 @@ public class OrderHandler {
     ShareholderRepository shareholderRepository;
     EventPublisher eventPublisher;
     Matcher matcher;
+    CheckpointService checkpointService;
+    EngineMetrics metrics;
 
-    public OrderHandler(SecurityRepository securityRepository, BrokerRepository brokerRepository, ShareholderRepository shareholderRepository, EventPublisher eventPublisher, Matcher matcher) {
+    public OrderHandler(SecurityRepository securityRepository, BrokerRepository brokerRepository, ShareholderRepository shareholderRepository, EventPublisher eventPublisher, Matcher matcher, CheckpointService checkpointService, EngineMetrics metrics) {
         this.securityRepository = securityRepository;
         this.brokerRepository = brokerRepository;
         this.shareholderRepository = shareholderRepository;
         this.eventPublisher = eventPublisher;
         this.matcher = matcher;
+        this.checkpointService = checkpointService;
+        this.metrics = metrics;
     }
 
     public void handleEnterOrder(EnterOrderRq enterOrderRq) {
+        handleEnterOrder(enterOrderRq, validateEnterOrderRq(enterOrderRq), eventPublisher::publish);
+    }
+
+    public void handleEnterOrder(EnterOrderRq enterOrderRq, List<String> validationErrors, Consumer<Event> publisher) {
+        checkpointService.beginRequest();
         try {
-            validateEnterOrderRq(enterOrderRq);
+            handleEnterOrder(enterOrderRq, validationErrors, publisher, new Lookups());
+        } finally {
+            checkpointService.endRequest();
+        }
+    }
 
-            Security security = securityRepository.findSecurityByIsin(enterOrderRq.getSecurityIsin());
-            Broker broker = brokerRepository.findBrokerById(enterOrderRq.getBrokerId());
-            Shareholder shareholder = shareholderRepository.findShareholderById(enterOrderRq.getShareholderId());
+    private void handleEnterOrder(EnterOrderRq enterOrderRq, List<String> validationErrors, Consumer<Event> publisher, Lookups lookups) {
+        try {
+            if (!validationErrors.isEmpty())
+                throw new InvalidRequestException(validationErrors);
 
+            long start = metrics.now();
+            Security security = lookups.security(enterOrderRq.getSecurityIsin());
+            Broker broker = lookups.broker(enterOrderRq.getBrokerId());
+            Shareholder shareholder = lookups.shareholder(enterOrderRq.getShareholderId());
+            metrics.record(Stage.LOOKUP, start);
+
+            start = metrics.now();
             MatchResult matchResult;
-            if (enterOrderRq.getRequestType() == OrderEntryType.NEW_ORDER)
+            if (enterOrderRq.getRequestType() == OrderEntryType.NEW_ORDER) {
+                touch(security, broker, shareholder);
                 matchResult = security.newOrder(enterOrderRq, broker, shareholder, matcher);
-            else
+            } else {
+                touch(security, enterOrderRq.getSide(), enterOrderRq.getOrderId());
                 matchResult = security.updateOrder(enterOrderRq, matcher);
+            }
+            metrics.record(Stage.MATCHING, start);
+            metrics.count(matchResult.outcome());
+            touch(matchResult.trades());
 
             if (matchResult.outcome() == MatchingOutcome.NOT_ENOUGH_CREDIT) {
-                eventPublisher.publish(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), List.of(Message.BUYER_HAS_NOT_ENOUGH_CREDIT)));
+                publisher.accept(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), List.of(Message.BUYER_HAS_NOT_ENOUGH_CREDIT)));
                 return;
             }
             if (matchResult.outcome() == MatchingOutcome.NOT_ENOUGH_POSITIONS) {
-                eventPublisher.publish(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), List.of(Message.SELLER_HAS_NOT_ENOUGH_POSITIONS)));
+                publisher.accept(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), List.of(Message.SELLER_HAS_NOT_ENOUGH_POSITIONS)));
                 return;
             }
             if (enterOrderRq.getRequestType() == OrderEntryType.NEW_ORDER)
-                eventPublisher.publish(new OrderAcceptedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId()));
+                publisher.accept(new OrderAcceptedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId()));
             else
-                eventPublisher.publish(new OrderUpdatedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId()));
+                publisher.accept(new OrderUpdatedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId()));
             if (!matchResult.trades().isEmpty()) {
-                eventPublisher.publish(new OrderExecutedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), matchResult.trades().stream().map(TradeDTO::new).collect(Collectors.toList())));
+                publisher.accept(new OrderExecutedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), matchResult.trades().stream().map(TradeDTO::new).collect(Collectors.toList())));
             }
         } catch (InvalidRequestException ex) {
-            eventPublisher.publish(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), ex.getReasons()));
+            metrics.countRejection();
+            publisher.accept(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), ex.getReasons()));
         }
     }
 
     public void handleDeleteOrder(DeleteOrderRq deleteOrderRq) {
+        handleDeleteOrder(deleteOrderRq, validateDeleteOrderRq(deleteOrderRq), eventPublisher::publish);
+    }
+
+    public void handleDeleteOrder(DeleteOrderRq deleteOrderRq, List<String> validationErrors, Consumer<Event> publisher) {
+        checkpointService.beginRequest();
+        try {
+            handleDeleteOrder(deleteOrderRq, validationErrors, publisher, new Lookups());
+        } finally {
+            checkpointService.endRequest();
+        }
+    }
+
+    private void handleDeleteOrder(DeleteOrderRq deleteOrderRq, List<String> validationErrors, Consumer<Event> publisher, Lookups lookups) {
         try {
-            validateDeleteOrderRq(deleteOrderRq);
-            Security security = securityRepository.findSecurityByIsin(deleteOrderRq.getSecurityIsin());
+            if (!validationErrors.isEmpty())
+                throw new InvalidRequestException(validationErrors);
+            Security security = lookups.security(deleteOrderRq.getSecurityIsin());
+            touch(security, deleteOrderRq.getSide(), deleteOrderRq.getOrderId());
             security.deleteOrder(deleteOrderRq);
-            eventPublisher.publish(new OrderDeletedEvent(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId()));
+            publisher.accept(new OrderDeletedEvent(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId()));
         } catch (InvalidRequestException ex) {
-            eventPublisher.publish(new OrderRejectedEvent(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId(), ex.getReasons()));
+            metrics.countRejection();
+            publisher.accept(new OrderRejectedEvent(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId(), ex.getReasons()));
         }
     }
 
-    private void validateEnterOrderRq(EnterOrderRq enterOrderRq) throws InvalidRequestException {
+    public void handleBatchOrder(BatchOrderRq batchOrderRq) {
+        handleBatchOrder(batchOrderRq, validateBatchOrderRq(batchOrderRq), eventPublisher::publish);
+    }
+
+    public void handleBatchOrder(BatchOrderRq batchOrderRq, List<List<String>> validationErrors, Consumer<Event> publisher) {
+        List<Event> events = new ArrayList<>();
+        Lookups lookups = new Lookups();
+        checkpointService.beginRequest();
+        try {
+            for (int i = 0; i < validationErrors.size(); i++)
+                handleBatchEntry(batchOrderRq, i, validationErrors.get(i), events::add, lookups);
+        } finally {
+            checkpointService.endRequest();
+        }
+        publisher.accept(new BatchEvent(batchOrderRq.getRequestId(), events));
+    }
+
+    public void handleBatchEntry(BatchOrderRq batchOrderRq, int index, List<String> validationErrors, Consumer<Event> publisher) {
+        checkpointService.beginRequest();
+        try {
+            handleBatchEntry(batchOrderRq, index, validationErrors, publisher, new Lookups());
+        } finally {
+            checkpointService.endRequest();
+        }
+    }
+
+    private void handleBatchEntry(BatchOrderRq batchOrderRq, int index, List<String> validationErrors, Consumer<Event> publisher, Lookups lookups) {
+        BatchOrderEntry entry = batchOrderRq.getEntries().get(index);
+        if (!isWellFormed(entry))
+            publisher.accept(new OrderRejectedEvent(batchOrderRq.getRequestId(), 0, validationErrors));
+        else if (entry.getEnterOrderRq() != null)
+            handleEnterOrder(entry.getEnterOrderRq(), validationErrors, publisher, lookups);
+        else
+            handleDeleteOrder(entry.getDeleteOrderRq(), validationErrors, publisher, lookups);
+    }
+
+    private void touch(Security security, Broker broker, Shareholder shareholder) {
+        checkpointService.touch(security);
+        checkpointService.touch(broker);
+        checkpointService.touch(shareholder);
+    }
+
+    private void touch(Security security, Side side, long orderId) {
+        if (!checkpointService.isEnabled())
+            return;
+        checkpointService.touch(security);
+        Order order = security.getOrderBook().findByOrderId(side, orderId);
+        if (order != null) {
+            checkpointService.touch(order.getBroker());
+            checkpointService.touch(order.getShareholder());
+        }
+    }
+
+    private void touch(List<Trade> trades) {
+        if (!checkpointService.isEnabled())
+            return;
+        for (Trade trade : trades) {
+            checkpointService.touch(trade.getBuyBroker());
+            checkpointService.touch(trade.getSellBroker());
+            checkpointService.touch(trade.getBuyShareholder());
+            checkpointService.touch(trade.getSellShareholder());
+        }
+    }
+
+    public void forEachBrokerTouchedBy(EnterOrderRq enterOrderRq, Consumer<Broker> action) {
+        Security security = securityRepository.findSecurityByIsin(enterOrderRq.getSecurityIsin());
+        if (security == null || enterOrderRq.getSide() == null)
+            return;
+        OrderBook orderBook = security.getOrderBook();
+        if (enterOrderRq.getRequestType() == OrderEntryType.UPDATE_ORDER) {
+            Order order = orderBook.findByOrderId(enterOrderRq.getSide(), enterOrderRq.getOrderId());
+            if (order != null)
+                action.accept(order.getBroker());
+        }
+        Side side = enterOrderRq.getSide().opposite();
+        long remaining = enterOrderRq.getQuantity();
+        for (PriceLevel level = orderBook.getBestLevel(side); level != null && remaining > 0; level = orderBook.getNextLevel(side, level)) {
+            if (enterOrderRq.getSide() == Side.BUY ? level.getPrice() > enterOrderRq.getPrice() : level.getPrice() < enterOrderRq.getPrice())
+                break;
+            for (Order order : level) {
+                action.accept(order.getBroker());
+                remaining -= order.getTotalQuantity();
+            }
+        }
+    }
+
+    public void forEachBrokerTouchedBy(DeleteOrderRq deleteOrderRq, Consumer<Broker> action) {
+        Security security = securityRepository.findSecurityByIsin(deleteOrderRq.getSecurityIsin());
+        if (security == null || deleteOrderRq.getSide() == null)
+            return;
+        Order order = security.getOrderBook().findByOrderId(deleteOrderRq.getSide(), deleteOrderRq.getOrderId());
+        if (order != null)
+            action.accept(order.getBroker());
+    }
+
+    public List<String> validateEnterOrderRq(EnterOrderRq enterOrderRq) {
+        long start = metrics.now();
+        List<String> errors = validateEnterOrderRq(enterOrderRq, new Lookups());
+        metrics.record(Stage.VALIDATION, start);
+        return errors;
+    }
+
+    private List<String> validateEnterOrderRq(EnterOrderRq enterOrderRq, Lookups lookups) {
         List<String> errors = new LinkedList<>();
         if (enterOrderRq.getOrderId() <= 0)
             errors.add(Message.INVALID_ORDER_ID);
@@ -87,7 +240,7 @@ public class OrderHandler {
             errors.add(Message.ORDER_QUANTITY_NOT_POSITIVE);
         if (enterOrderRq.getPrice() <= 0)
             errors.add(Message.ORDER_PRICE_NOT_POSITIVE);
-        Security security = securityRepository.findSecurityByIsin(enterOrderRq.getSecurityIsin());
+        Security security = lookups.security(enterOrderRq.getSecurityIsin());
         if (security == null)
             errors.add(Message.UNKNOWN_SECURITY_ISIN);
         else {
@@ -96,9 +249,9 @@ public class OrderHandler {
             if (enterOrderRq.getPrice() % security.getTickSize() != 0)
                 errors.add(Message.PRICE_NOT_MULTIPLE_OF_TICK_SIZE);
         }
-        if (brokerRepository.findBrokerById(enterOrderRq.getBrokerId()) == null)
+        if (lookups.broker(enterOrderRq.getBrokerId()) == null)
             errors.add(Message.UNKNOWN_BROKER_ID);
-        if (shareholderRepository.findShareholderById(enterOrderRq.getShareholderId()) == null)
+        if (lookups.shareholder(enterOrderRq.getShareholderId()) == null)
             errors.add(Message.UNKNOWN_SHAREHOLDER_ID);
         if (enterOrderRq.getPeakSize() < 0 || enterOrderRq.getPeakSize() >= enterOrderRq.getQuantity())
             errors.add(Message.INVALID_PEAK_SIZE);
@@ -111,17 +264,76 @@ public class OrderHandler {
             if (enterOrderRq.getMinimumExecutionQuantity() > enterOrderRq.getQuantity())
                 errors.add(Message.INVALID_MEQ);
         }
-        if (!errors.isEmpty())
-            throw new InvalidRequestException(errors);
+        return errors;
+    }
+
+    public List<String> validateDeleteOrderRq(DeleteOrderRq deleteOrderRq) {
+        long start = metrics.now();
+        List<String> errors = validateDeleteOrderRq(deleteOrderRq, new Lookups());
+        metrics.record(Stage.VALIDATION, start);
+        return errors;
     }
 
-    private void validateDeleteOrderRq(DeleteOrderRq deleteOrderRq) throws InvalidRequestException {
+    private List<String> validateDeleteOrderRq(DeleteOrderRq deleteOrderRq, Lookups lookups) {
         List<String> errors = new LinkedList<>();
         if (deleteOrderRq.getOrderId() <= 0)
             errors.add(Message.INVALID_ORDER_ID);
-        if (securityRepository.findSecurityByIsin(deleteOrderRq.getSecurityIsin()) == null)
+        if (lookups.security(deleteOrderRq.getSecurityIsin()) == null)
             errors.add(Message.UNKNOWN_SECURITY_ISIN);
-        if (!errors.isEmpty())
-            throw new InvalidRequestException(errors);
+        return errors;
+    }
+
+    public List<List<String>> validateBatchOrderRq(BatchOrderRq batchOrderRq) {
+        long start = metrics.now();
+        List<BatchOrderEntry> entries = batchOrderRq.getEntries() == null ? List.of() : batchOrderRq.getEntries();
+        List<List<String>> errors = new ArrayList<>(entries.size());
+        Lookups lookups = new Lookups();
+        for (BatchOrderEntry entry : entries) {
+            if (!isWellFormed(entry))
+                errors.add(List.of(Message.INVALID_BATCH_ENTRY));
+            else if (entry.getEnterOrderRq() != null)
+                errors.add(validateEnterOrderRq(entry.getEnterOrderRq(), lookups));
+            else
+                errors.add(validateDeleteOrderRq(entry.getDeleteOrderRq(), lookups));
+        }
+        metrics.record(Stage.VALIDATION, start);
+        return errors;
+    }
+
+    private static boolean isWellFormed(BatchOrderEntry entry) {
+        return entry != null && (entry.getEnterOrderRq() == null) != (entry.getDeleteOrderRq() == null);
+    }
+
+    private class Lookups {
+        private String isin;
+        private Security security;
+        private long brokerId;
+        private Broker broker;
+        private long shareholderId;
+        private Shareholder shareholder;
+
+        Security security(String isin) {
+            if (security == null || !Objects.equals(this.isin, isin)) {
+                this.isin = isin;
+                security = securityRepository.findSecurityByIsin(isin);
+            }
+            return security;
+        }
+
+        Broker broker(long brokerId) {
+            if (broker == null || this.brokerId != brokerId) {
+                this.brokerId = brokerId;
+                broker = brokerRepository.findBrokerById(brokerId);
+            }
+            return broker;
+        }
+
+        Shareholder shareholder(long shareholderId) {
+            if (shareholder == null || this.shareholderId != shareholderId) {
+                this.shareholderId = shareholderId;
+                shareholder = shareholderRepository.findShareholderById(shareholderId);
+            }
+            return shareholder;
+        }
     }
 }
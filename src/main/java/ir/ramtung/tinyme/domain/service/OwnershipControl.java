@@ -16,8 +16,8 @@ public class OwnershipControl implements MatchingControl {
     }
     public void matchingAccepted(Order order, MatchResult result) {
         for (Trade trade : result.trades()) {
-            trade.getBuy().getShareholder().incPosition(trade.getSecurity(), trade.getQuantity());
-            trade.getSell().getShareholder().decPosition(trade.getSecurity(), trade.getQuantity());
+            trade.increaseBuyersPosition();
+            trade.decreaseSellersPosition();
         }
     }
 }
@@ -0,0 +1,328 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.event.*;
+import ir.ramtung.tinyme.messaging.request.BatchOrderEntry;
+import ir.ramtung.tinyme.messaging.request.BatchOrderRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.OrderEntryType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BinaryCodec {
+    public static final int ISIN_LENGTH = 12;
+    public static final byte ENTER_ORDER_RQ = 1;
+    public static final byte DELETE_ORDER_RQ = 2;
+    public static final byte BATCH_ORDER_RQ = 3;
+    public static final byte ORDER_ACCEPTED = 16;
+    public static final byte ORDER_UPDATED = 17;
+    public static final byte ORDER_DELETED = 18;
+    public static final byte ORDER_REJECTED = 19;
+    public static final byte ORDER_EXECUTED = 20;
+    public static final byte BATCH_EVENT = 21;
+
+    private static final int ENTER_ORDER_RQ_SIZE = 1 + 1 + 8 + ISIN_LENGTH + 8 + 8 + 1 + 4 + 4 + 4 + 8 + 8 + 4;
+    private static final int DELETE_ORDER_RQ_SIZE = 1 + 8 + ISIN_LENGTH + 1 + 8 + 8;
+    private static final int ORDER_EVENT_SIZE = 1 + 8 + 8 + 8;
+    private static final int TRADE_SIZE = ISIN_LENGTH + 4 + 4 + 8 + 8;
+    private static final int HAS_ENTER_ORDER_RQ = 1;
+    private static final int HAS_DELETE_ORDER_RQ = 2;
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    public int sizeOf(Object message) {
+        if (message instanceof EnterOrderRq)
+            return ENTER_ORDER_RQ_SIZE;
+        if (message instanceof DeleteOrderRq)
+            return DELETE_ORDER_RQ_SIZE;
+        if (message instanceof OrderAcceptedEvent || message instanceof OrderUpdatedEvent || message instanceof OrderDeletedEvent)
+            return ORDER_EVENT_SIZE;
+        if (message instanceof OrderRejectedEvent rejected) {
+            int size = ORDER_EVENT_SIZE + 2;
+            if (rejected.getErrors() != null)
+                for (String error : rejected.getErrors())
+                    size += 2 + error.getBytes(StandardCharsets.UTF_8).length;
+            return size;
+        }
+        if (message instanceof OrderExecutedEvent executed)
+            return ORDER_EVENT_SIZE + 4 + (executed.getTrades() == null ? 0 : executed.getTrades().size() * TRADE_SIZE);
+        if (message instanceof BatchOrderRq batch) {
+            int size = 1 + 8 + 4;
+            if (batch.getEntries() != null)
+                for (BatchOrderEntry entry : batch.getEntries()) {
+                    size += 1;
+                    if (entry != null && entry.getEnterOrderRq() != null)
+                        size += ENTER_ORDER_RQ_SIZE;
+                    if (entry != null && entry.getDeleteOrderRq() != null)
+                        size += DELETE_ORDER_RQ_SIZE;
+                }
+            return size;
+        }
+        if (message instanceof BatchEvent batch) {
+            int size = 1 + 8 + 8 + 4;
+            if (batch.getEvents() != null)
+                for (Event event : batch.getEvents())
+                    size += sizeOf(event);
+            return size;
+        }
+        throw new IllegalArgumentException("No binary layout for " + typeName(message));
+    }
+
+    public byte[] encode(Object message) {
+        ByteBuffer buffer = ByteBuffer.allocate(sizeOf(message));
+        encode(message, buffer);
+        return buffer.array();
+    }
+
+    public void encode(Object message, ByteBuffer buffer) {
+        if (message instanceof EnterOrderRq rq) {
+            buffer.put(ENTER_ORDER_RQ);
+            buffer.put(rq.getRequestType() == null ? 0 : (byte) (rq.getRequestType().ordinal() + 1));
+            buffer.putLong(rq.getRequestId());
+            putIsin(buffer, rq.getSecurityIsin());
+            buffer.putLong(rq.getOrderId());
+            putTime(buffer, rq.getEntryTime());
+            putSide(buffer, rq.getSide());
+            buffer.putInt(rq.getQuantity());
+            buffer.putInt(rq.getMinimumExecutionQuantity());
+            buffer.putInt(rq.getPrice());
+            buffer.putLong(rq.getBrokerId());
+            buffer.putLong(rq.getShareholderId());
+            buffer.putInt(rq.getPeakSize());
+        } else if (message instanceof DeleteOrderRq rq) {
+            buffer.put(DELETE_ORDER_RQ);
+            buffer.putLong(rq.getRequestId());
+            putIsin(buffer, rq.getSecurityIsin());
+            putSide(buffer, rq.getSide());
+            buffer.putLong(rq.getOrderId());
+            putTime(buffer, rq.getEntryTime());
+        } else if (message instanceof OrderAcceptedEvent event) {
+            putOrderEvent(buffer, ORDER_ACCEPTED, event, event.getRequestId(), event.getOrderId());
+        } else if (message instanceof OrderUpdatedEvent event) {
+            putOrderEvent(buffer, ORDER_UPDATED, event, event.getRequestId(), event.getOrderId());
+        } else if (message instanceof OrderDeletedEvent event) {
+            putOrderEvent(buffer, ORDER_DELETED, event, event.getRequestId(), event.getOrderId());
+        } else if (message instanceof OrderRejectedEvent event) {
+            putOrderEvent(buffer, ORDER_REJECTED, event, event.getRequestId(), event.getOrderId());
+            List<String> errors = event.getErrors() == null ? List.of() : event.getErrors();
+            buffer.putShort((short) errors.size());
+            for (String error : errors) {
+                byte[] bytes = error.getBytes(StandardCharsets.UTF_8);
+                buffer.putShort((short) bytes.length);
+                buffer.put(bytes);
+            }
+        } else if (message instanceof OrderExecutedEvent event) {
+            putOrderEvent(buffer, ORDER_EXECUTED, event, event.getRequestId(), event.getOrderId());
+            List<TradeDTO> trades = event.getTrades() == null ? List.of() : event.getTrades();
+            buffer.putInt(trades.size());
+            for (TradeDTO trade : trades) {
+                putIsin(buffer, trade.securityIsin());
+                buffer.putInt(trade.price());
+                buffer.putInt(trade.quantity());
+                buffer.putLong(trade.buyOrderId());
+                buffer.putLong(trade.sellOrderId());
+            }
+        } else if (message instanceof BatchOrderRq batch) {
+            buffer.put(BATCH_ORDER_RQ);
+            buffer.putLong(batch.getRequestId());
+            List<BatchOrderEntry> entries = batch.getEntries() == null ? List.of() : batch.getEntries();
+            buffer.putInt(entries.size());
+            for (BatchOrderEntry entry : entries) {
+                EnterOrderRq enterOrderRq = entry == null ? null : entry.getEnterOrderRq();
+                DeleteOrderRq deleteOrderRq = entry == null ? null : entry.getDeleteOrderRq();
+                buffer.put((byte) ((enterOrderRq != null ? HAS_ENTER_ORDER_RQ : 0) | (deleteOrderRq != null ? HAS_DELETE_ORDER_RQ : 0)));
+                if (enterOrderRq != null)
+                    encode(enterOrderRq, buffer);
+                if (deleteOrderRq != null)
+                    encode(deleteOrderRq, buffer);
+            }
+        } else if (message instanceof BatchEvent batch) {
+            buffer.put(BATCH_EVENT);
+            putTime(buffer, batch.getTime());
+            buffer.putLong(batch.getRequestId());
+            List<Event> events = batch.getEvents() == null ? List.of() : batch.getEvents();
+            buffer.putInt(events.size());
+            for (Event event : events) {
+                if (event instanceof BatchEvent)
+                    throw new IllegalArgumentException("Batch events cannot be nested");
+                encode(event, buffer);
+            }
+        } else {
+            throw new IllegalArgumentException("No binary layout for " + typeName(message));
+        }
+    }
+
+    public Object decode(ByteBuffer buffer) {
+        byte type = buffer.get();
+        switch (type) {
+            case ENTER_ORDER_RQ -> {
+                EnterOrderRq rq = new EnterOrderRq();
+                byte requestType = buffer.get();
+                rq.setRequestType(requestType == 0 ? null : OrderEntryType.values()[requestType - 1]);
+                rq.setRequestId(buffer.getLong());
+                rq.setSecurityIsin(getIsin(buffer));
+                rq.setOrderId(buffer.getLong());
+                rq.setEntryTime(getTime(buffer));
+                rq.setSide(getSide(buffer));
+                rq.setQuantity(buffer.getInt());
+                rq.setMinimumExecutionQuantity(buffer.getInt());
+                rq.setPrice(buffer.getInt());
+                rq.setBrokerId(buffer.getLong());
+                rq.setShareholderId(buffer.getLong());
+                rq.setPeakSize(buffer.getInt());
+                return rq;
+            }
+            case DELETE_ORDER_RQ -> {
+                long requestId = buffer.getLong();
+                String isin = getIsin(buffer);
+                Side side = getSide(buffer);
+                long orderId = buffer.getLong();
+                return new DeleteOrderRq(requestId, isin, side, orderId, getTime(buffer));
+            }
+            case ORDER_ACCEPTED -> {
+                return new OrderAcceptedEvent(getTime(buffer), buffer.getLong(), buffer.getLong());
+            }
+            case ORDER_UPDATED -> {
+                return new OrderUpdatedEvent(getTime(buffer), buffer.getLong(), buffer.getLong());
+            }
+            case ORDER_DELETED -> {
+                return new OrderDeletedEvent(getTime(buffer), buffer.getLong(), buffer.getLong());
+            }
+            case ORDER_REJECTED -> {
+                LocalDateTime time = getTime(buffer);
+                long requestId = buffer.getLong();
+                long orderId = buffer.getLong();
+                int count = checkCount(buffer, buffer.getShort(), 2);
+                List<String> errors = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    int length = checkCount(buffer, buffer.getShort(), 1);
+                    byte[] bytes = new byte[length];
+                    buffer.get(bytes);
+                    errors.add(new String(bytes, StandardCharsets.UTF_8));
+                }
+                return new OrderRejectedEvent(time, requestId, orderId, errors);
+            }
+            case ORDER_EXECUTED -> {
+                LocalDateTime time = getTime(buffer);
+                long requestId = buffer.getLong();
+                long orderId = buffer.getLong();
+                int count = checkCount(buffer, buffer.getInt(), TRADE_SIZE);
+                List<TradeDTO> trades = new ArrayList<>(count);
+                for (int i = 0; i < count; i++)
+                    trades.add(new TradeDTO(getIsin(buffer), buffer.getInt(), buffer.getInt(), buffer.getLong(), buffer.getLong()));
+                return new OrderExecutedEvent(time, requestId, orderId, trades);
+            }
+            case BATCH_ORDER_RQ -> {
+                long requestId = buffer.getLong();
+                int count = checkCount(buffer, buffer.getInt(), 1);
+                List<BatchOrderEntry> entries = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    byte present = buffer.get();
+                    EnterOrderRq enterOrderRq = (present & HAS_ENTER_ORDER_RQ) != 0 ? (EnterOrderRq) decodeNested(buffer, ENTER_ORDER_RQ, ENTER_ORDER_RQ) : null;
+                    DeleteOrderRq deleteOrderRq = (present & HAS_DELETE_ORDER_RQ) != 0 ? (DeleteOrderRq) decodeNested(buffer, DELETE_ORDER_RQ, DELETE_ORDER_RQ) : null;
+                    entries.add(new BatchOrderEntry(enterOrderRq, deleteOrderRq));
+                }
+                return new BatchOrderRq(requestId, entries);
+            }
+            case BATCH_EVENT -> {
+                LocalDateTime time = getTime(buffer);
+                long requestId = buffer.getLong();
+                int count = checkCount(buffer, buffer.getInt(), ORDER_EVENT_SIZE);
+                List<Event> events = new ArrayList<>(count);
+                for (int i = 0; i < count; i++)
+                    events.add((Event) decodeNested(buffer, ORDER_ACCEPTED, ORDER_EXECUTED));
+                return new BatchEvent(time, requestId, events);
+            }
+            default -> throw new IllegalArgumentException("Unknown binary message type " + type);
+        }
+    }
+
+    // Batches only nest plain requests and events; checking the type before decoding keeps a crafted payload
+    // from nesting batches until the stack overflows or from casting one message type to another.
+    private Object decodeNested(ByteBuffer buffer, byte lowestType, byte highestType) {
+        byte type = buffer.get();
+        buffer.position(buffer.position() - 1);
+        if (type < lowestType || type > highestType)
+            throw new IllegalArgumentException("Binary message type " + type + " cannot be nested in a batch");
+        return decode(buffer);
+    }
+
+    private static int checkCount(ByteBuffer buffer, int count, int minimumElementSize) {
+        if (count < 0 || count > buffer.remaining() / minimumElementSize)
+            throw new IllegalArgumentException("Element count " + count + " does not fit in the remaining " + buffer.remaining() + " bytes");
+        return count;
+    }
+
+    private void putOrderEvent(ByteBuffer buffer, byte type, Event event, long requestId, long orderId) {
+        buffer.put(type);
+        putTime(buffer, event.getTime());
+        buffer.putLong(requestId);
+        buffer.putLong(orderId);
+    }
+
+    private void putIsin(ByteBuffer buffer, String isin) {
+        int length = isin == null ? 0 : isin.length();
+        if (length > ISIN_LENGTH)
+            throw new IllegalArgumentException("ISIN longer than " + ISIN_LENGTH + " characters: " + isin);
+        for (int i = 0; i < length; i++) {
+            char c = isin.charAt(i);
+            if (c == 0 || c > 0x7f)
+                throw new IllegalArgumentException("ISIN has a character outside non-null ASCII: " + isin);
+            buffer.put((byte) c);
+        }
+        for (int i = length; i < ISIN_LENGTH; i++)
+            buffer.put((byte) 0);
+    }
+
+    private String getIsin(ByteBuffer buffer) {
+        int start = buffer.position();
+        int length = 0;
+        while (length < ISIN_LENGTH && buffer.get(start + length) != 0)
+            length++;
+        buffer.position(start + ISIN_LENGTH);
+        if (length == 0)
+            return null;
+        byte[] bytes = new byte[length];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    public static long toEpochNanos(LocalDateTime time) {
+        if (time == null)
+            return NO_TIME;
+        return time.toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND + time.getNano();
+    }
+
+    public static LocalDateTime fromEpochNanos(long nanos) {
+        if (nanos == NO_TIME)
+            return null;
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, NANOS_PER_SECOND), (int) Math.floorMod(nanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+
+    private void putTime(ByteBuffer buffer, LocalDateTime time) {
+        buffer.putLong(toEpochNanos(time));
+    }
+
+    private LocalDateTime getTime(ByteBuffer buffer) {
+        return fromEpochNanos(buffer.getLong());
+    }
+
+    private void putSide(ByteBuffer buffer, Side side) {
+        buffer.put(side == null ? 0 : (byte) (side.ordinal() + 1));
+    }
+
+    private Side getSide(ByteBuffer buffer) {
+        byte side = buffer.get();
+        return side == 0 ? null : Side.values()[side - 1];
+    }
+
+    private static String typeName(Object message) {
+        return message == null ? "null" : message.getClass().getName();
+    }
+}
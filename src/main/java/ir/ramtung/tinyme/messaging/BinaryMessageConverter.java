@@ -0,0 +1,45 @@
+package ir.ramtung.tinyme.messaging;
+
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Session;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import java.nio.ByteBuffer;
+
+public class BinaryMessageConverter implements MessageConverter {
+    private final BinaryCodec codec = new BinaryCodec();
+    private final String typeIdPropertyName;
+
+    public BinaryMessageConverter(String typeIdPropertyName) {
+        this.typeIdPropertyName = typeIdPropertyName;
+    }
+
+    @Override
+    public jakarta.jms.Message toMessage(Object object, Session session) throws JMSException, MessageConversionException {
+        byte[] payload;
+        try {
+            payload = codec.encode(object);
+        } catch (IllegalArgumentException ex) {
+            throw new MessageConversionException(ex.getMessage(), ex);
+        }
+        BytesMessage message = session.createBytesMessage();
+        message.writeBytes(payload);
+        message.setStringProperty(typeIdPropertyName, object.getClass().getName());
+        return message;
+    }
+
+    @Override
+    public Object fromMessage(jakarta.jms.Message message) throws JMSException, MessageConversionException {
+        if (!(message instanceof BytesMessage bytesMessage))
+            throw new MessageConversionException("Expected a BytesMessage but received " + message.getClass().getName());
+        byte[] payload = new byte[(int) bytesMessage.getBodyLength()];
+        bytesMessage.readBytes(payload);
+        try {
+            return codec.decode(ByteBuffer.wrap(payload));
+        } catch (RuntimeException ex) {
+            throw new MessageConversionException("Could not decode binary message: " + ex.getMessage(), ex);
+        }
+    }
+}
@@ -1,25 +1,267 @@
 package ir.ramtung.tinyme.messaging;
 
+import ir.ramtung.tinyme.domain.service.EngineMetrics;
+import ir.ramtung.tinyme.domain.service.EngineMetrics.Stage;
 import ir.ramtung.tinyme.messaging.event.Event;
+import jakarta.jms.Connection;
+import jakarta.jms.JMSException;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Logger;
 
 @Component
-public class EventPublisher {
+public class EventPublisher implements SmartLifecycle {
+    private static final long INITIAL_RETRY_MILLIS = 10;
+    private static final long MAX_RETRY_MILLIS = 1000;
+    private static final long SHUTDOWN_RETRY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
     private final Logger log = Logger.getLogger(this.getClass().getName());
     private final JmsTemplate jmsTemplate;
+    private final EngineMetrics metrics;
     @Value("${responseQueue}")
     private String responseQueue;
+    private final boolean async;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final BlockingQueue<Event> queue;
+    private final AtomicLong publishedEvents = new AtomicLong();
+    private final AtomicLong sentBatches = new AtomicLong();
+    private final AtomicLong blockedPublishes = new AtomicLong();
+    private final AtomicLong failedSends = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final ReentrantReadWriteLock handoff = new ReentrantReadWriteLock();
+    private Thread drainer;
+    private volatile boolean running;
+    private Connection connection;
+    private Session session;
+    private MessageProducer producer;
 
-    public EventPublisher(JmsTemplate jmsTemplate) {
+    public EventPublisher(JmsTemplate jmsTemplate,
+                          EngineMetrics metrics,
+                          @Value("${eventPublisherAsync:false}") boolean async,
+                          @Value("${eventPublisherQueueCapacity:65536}") int queueCapacity,
+                          @Value("${eventPublisherBatchSize:64}") int batchSize,
+                          @Value("${eventPublisherLingerMicros:200}") long lingerMicros) {
         this.jmsTemplate = jmsTemplate;
+        this.metrics = metrics;
+        this.async = async;
+        this.batchSize = Math.max(batchSize, 1);
+        this.lingerNanos = TimeUnit.MICROSECONDS.toNanos(lingerMicros);
+        this.queue = async ? new ArrayBlockingQueue<>(queueCapacity) : null;
     }
 
     public void publish(Event event) {
+        long start = metrics.now();
+        if (async) {
+            handoff.readLock().lock();
+            try {
+                if (running) {
+                    enqueue(event);
+                    metrics.record(Stage.PUBLISH, start);
+                    return;
+                }
+            } finally {
+                handoff.readLock().unlock();
+            }
+        }
         log.info("Published : " + event);
         jmsTemplate.convertAndSend(responseQueue, event);
+        publishedEvents.incrementAndGet();
+        metrics.record(Stage.PUBLISH, start);
+    }
+
+    private void enqueue(Event event) {
+        if (queue.offer(event))
+            return;
+        blockedPublishes.incrementAndGet();
+        try {
+            queue.put(event);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to publish " + event, ex);
+        }
+    }
+
+    public int getPendingEvents() {
+        return async ? queue.size() : 0;
+    }
+
+    public int getRemainingCapacity() {
+        return async ? queue.remainingCapacity() : 0;
+    }
+
+    public long getPublishedEvents() {
+        return publishedEvents.get();
+    }
+
+    public long getSentBatches() {
+        return sentBatches.get();
+    }
+
+    public long getBlockedPublishes() {
+        return blockedPublishes.get();
+    }
+
+    public long getFailedSends() {
+        return failedSends.get();
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    private void drain() {
+        List<Event> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Event first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0)
+                        continue;
+                    long remaining = deadline - System.nanoTime();
+                    Event next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null)
+                        break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException ex) {
+                queue.drainTo(batch);
+            }
+            sendWithRetry(batch);
+            batch.clear();
+        }
+        closeSession();
+    }
+
+    private void sendWithRetry(List<Event> batch) {
+        if (batch.isEmpty())
+            return;
+        long retryMillis = INITIAL_RETRY_MILLIS;
+        long giveUpAt = 0;
+        while (true) {
+            try {
+                send(batch);
+                return;
+            } catch (JMSException | RuntimeException ex) {
+                failedSends.incrementAndGet();
+                closeSession();
+                if (!running) {
+                    if (giveUpAt == 0)
+                        giveUpAt = System.nanoTime() + SHUTDOWN_RETRY_NANOS;
+                    else if (System.nanoTime() - giveUpAt > 0) {
+                        log.severe("Dropping a batch of " + batch.size() + " events on shutdown: " + ex);
+                        droppedEvents.addAndGet(batch.size());
+                        return;
+                    }
+                }
+                log.warning("Could not publish a batch of " + batch.size() + " events, retrying in " + retryMillis + " ms: " + ex);
+            }
+            try {
+                Thread.sleep(retryMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                log.severe("Dropping a batch of " + batch.size() + " events after an interrupt");
+                droppedEvents.addAndGet(batch.size());
+                return;
+            }
+            retryMillis = Math.min(retryMillis * 2, MAX_RETRY_MILLIS);
+        }
+    }
+
+    private void send(List<Event> batch) throws JMSException {
+        if (session == null)
+            openSession();
+        int sent = 0;
+        for (Event event : batch) {
+            jakarta.jms.Message message;
+            try {
+                message = jmsTemplate.getMessageConverter().toMessage(event, session);
+            } catch (RuntimeException ex) {
+                log.severe("Dropping event that could not be converted: " + event + ": " + ex);
+                droppedEvents.incrementAndGet();
+                continue;
+            }
+            log.info("Published : " + event);
+            producer.send(message);
+            sent++;
+        }
+        session.commit();
+        publishedEvents.addAndGet(sent);
+        sentBatches.incrementAndGet();
+    }
+
+    private void openSession() throws JMSException {
+        connection = jmsTemplate.getConnectionFactory().createConnection();
+        session = connection.createSession(true, Session.SESSION_TRANSACTED);
+        producer = session.createProducer(session.createQueue(responseQueue));
+        if (jmsTemplate.isExplicitQosEnabled())
+            producer.setDeliveryMode(jmsTemplate.getDeliveryMode());
+    }
+
+    private void closeSession() {
+        try {
+            if (connection != null)
+                connection.close();
+        } catch (JMSException ex) {
+            log.warning("Could not close the publishing connection: " + ex);
+        }
+        connection = null;
+        session = null;
+        producer = null;
+    }
+
+    @Override
+    public void start() {
+        if (!async || running)
+            return;
+        handoff.writeLock().lock();
+        try {
+            running = true;
+            drainer = new Thread(this::drain, "event-publisher");
+            drainer.start();
+        } finally {
+            handoff.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (!running)
+            return;
+        handoff.writeLock().lock();
+        try {
+            running = false;
+            drainer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            handoff.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 2048;
     }
 }
@@ -17,4 +17,7 @@ public class Message {
     public static final String INVALID_MEQ="Minimum execution quantity can't be bigger than quantity";
     public static final String MEQ_ON_UPDATE="Minimum execution quantity can only be specified for new orders";
     public static final String MEQ_NOT_POSITIVE = "Minimum execution quantity must be positive or zero";
+    public static final String INVALID_BATCH_ENTRY = "Batch entry must hold exactly one request";
+    public static final String REQUEST_RATE_LIMIT_EXCEEDED = "Request rate limit exceeded";
+    public static final String REQUEST_PROCESSING_FAILED = "Request could not be processed";
 }
@@ -1,18 +1,79 @@
 package ir.ramtung.tinyme.messaging;
 
+import jakarta.jms.ConnectionFactory;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jms.DefaultJmsListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.jms.artemis.ArtemisConfigurationCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
+import org.springframework.jms.connection.CachingConnectionFactory;
 import org.springframework.jms.support.converter.MappingJackson2MessageConverter;
 import org.springframework.jms.support.converter.MessageConverter;
 import org.springframework.jms.support.converter.MessageType;
 
 @Configuration
 public class MessagingConfig {
+    public static final String TYPE_ID_PROPERTY_NAME = "_type";
+
     @Bean
+    @ConditionalOnProperty(name = "messageCodec", havingValue = "json", matchIfMissing = true)
     public MessageConverter jacksonJmsMessageConverter() {
         MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
         converter.setTargetType(MessageType.TEXT);
-        converter.setTypeIdPropertyName("_type");
+        converter.setTypeIdPropertyName(TYPE_ID_PROPERTY_NAME);
         return converter;
     }
+
+    @Bean
+    @ConditionalOnProperty(name = "messageCodec", havingValue = "binary")
+    public MessageConverter binaryJmsMessageConverter() {
+        return new BinaryMessageConverter(TYPE_ID_PROPERTY_NAME);
+    }
+
+    @Bean
+    public DefaultJmsListenerContainerFactory jmsListenerContainerFactory(DefaultJmsListenerContainerFactoryConfigurer configurer,
+                                                                          ConnectionFactory connectionFactory,
+                                                                          @Value("${singleRequestListener:false}") boolean singleRequestListener) {
+        DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAutoStartup(!singleRequestListener);
+        return factory;
+    }
+
+    @Bean
+    public static BeanPostProcessor artemisConnectionFactoryTuner(@Value("${jmsConsumerWindowSize:}") Integer consumerWindowSize,
+                                                                  @Value("${jmsCacheDestinations:false}") boolean cacheDestinations) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                ConnectionFactory target = bean instanceof CachingConnectionFactory caching ? caching.getTargetConnectionFactory() : null;
+                if (bean instanceof ActiveMQConnectionFactory artemis)
+                    target = artemis;
+                if (target instanceof ActiveMQConnectionFactory artemis) {
+                    if (consumerWindowSize != null)
+                        artemis.setConsumerWindowSize(consumerWindowSize);
+                    if (cacheDestinations)
+                        artemis.setCacheDestinations(true);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public ArtemisConfigurationCustomizer embeddedBrokerAcceptor(@Value("${embeddedBrokerAcceptor:}") String acceptor) {
+        return configuration -> {
+            if (acceptor.isBlank())
+                return;
+            try {
+                configuration.addAcceptorConfiguration("tinyme", acceptor);
+            } catch (Exception ex) {
+                throw new IllegalArgumentException("Invalid embeddedBrokerAcceptor " + acceptor, ex);
+            }
+        };
+    }
 }
@@ -0,0 +1,358 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.event.OrderRejectedEvent;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+@Component
+public class OrderGateway implements SmartLifecycle {
+    private static final int FRAME_HEADER_SIZE = Integer.BYTES;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final RequestDispatcher requestDispatcher;
+    private final BinaryCodec codec = new BinaryCodec();
+    @Getter
+    private final boolean enabled;
+    private final String host;
+    private final int port;
+    private final int maxFrameBytes;
+    private final long throttleRate;
+    private final long throttleBurst;
+    private final int maxPendingEvents;
+    private final Set<GatewaySession> sessions = new HashSet<>();
+    private final Queue<GatewaySession> pendingFlushes = new ConcurrentLinkedQueue<>();
+    private final AtomicLong acceptedConnections = new AtomicLong();
+    private final AtomicLong receivedRequests = new AtomicLong();
+    private final AtomicLong throttledRequests = new AtomicLong();
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread loop;
+    private volatile boolean running;
+
+    public OrderGateway(RequestDispatcher requestDispatcher,
+                        @Value("${gatewayEnabled:false}") boolean enabled,
+                        @Value("${gatewayHost:127.0.0.1}") String host,
+                        @Value("${gatewayPort:9091}") int port,
+                        @Value("${gatewayMaxFrameBytes:65536}") int maxFrameBytes,
+                        @Value("${gatewayThrottleRate:0}") long throttleRate,
+                        @Value("${gatewayThrottleBurst:100}") long throttleBurst,
+                        @Value("${gatewayMaxPendingEvents:65536}") int maxPendingEvents) {
+        this.requestDispatcher = requestDispatcher;
+        this.enabled = enabled;
+        this.host = host;
+        this.port = port;
+        this.maxFrameBytes = maxFrameBytes;
+        this.throttleRate = throttleRate;
+        this.throttleBurst = throttleBurst;
+        this.maxPendingEvents = maxPendingEvents;
+    }
+
+    public int getLocalPort() {
+        return serverChannel == null ? -1 : serverChannel.socket().getLocalPort();
+    }
+
+    public long getAcceptedConnections() {
+        return acceptedConnections.get();
+    }
+
+    public long getReceivedRequests() {
+        return receivedRequests.get();
+    }
+
+    public long getThrottledRequests() {
+        return throttledRequests.get();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                GatewaySession pending;
+                while ((pending = pendingFlushes.poll()) != null)
+                    serve(pending, SelectionKey.OP_WRITE);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid())
+                        continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    serve((GatewaySession) key.attachment(), key.readyOps());
+                }
+            }
+        } catch (IOException ex) {
+            log.severe("Order gateway stopped: " + ex);
+        } finally {
+            for (GatewaySession session : new ArrayList<>(sessions))
+                session.close();
+            try {
+                serverChannel.close();
+                selector.close();
+            } catch (IOException ex) {
+                log.warning("Could not close the order gateway: " + ex);
+            }
+        }
+    }
+
+    private void serve(GatewaySession session, int readyOps) {
+        try {
+            if ((readyOps & SelectionKey.OP_WRITE) != 0)
+                session.flush();
+            if ((readyOps & SelectionKey.OP_READ) != 0 && session.key.isValid())
+                session.read();
+        } catch (Throwable ex) {
+            log.severe("Closing gateway connection " + session + " after an unexpected failure: " + ex);
+            session.close();
+        }
+    }
+
+    private void accept() {
+        try {
+            SocketChannel channel;
+            while ((channel = serverChannel.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                GatewaySession session = new GatewaySession(channel);
+                session.key = channel.register(selector, SelectionKey.OP_READ, session);
+                sessions.add(session);
+                acceptedConnections.incrementAndGet();
+                log.info("Accepted gateway connection from " + session);
+            }
+        } catch (IOException ex) {
+            log.warning("Could not accept a gateway connection: " + ex);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running)
+            return;
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(host, port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not open the order gateway on " + host + ":" + port, ex);
+        }
+        running = true;
+        loop = new Thread(this::run, "order-gateway");
+        loop.start();
+        log.info("Order gateway listening on port " + getLocalPort());
+    }
+
+    @Override
+    public void stop() {
+        if (!running)
+            return;
+        running = false;
+        selector.wakeup();
+        try {
+            loop.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private class GatewaySession {
+        private final SocketChannel channel;
+        private final String remoteAddress;
+        private final ByteBuffer in = ByteBuffer.allocate(FRAME_HEADER_SIZE + maxFrameBytes);
+        private ByteBuffer out = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+        private final Queue<Event> outbound = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingEvents = new AtomicInteger();
+        private volatile boolean overflowed;
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+        private final TokenBucket throttle;
+        private final Consumer<Event> publisher = this::publish;
+        private SelectionKey key;
+        private volatile boolean open = true;
+
+        GatewaySession(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.remoteAddress = String.valueOf(channel.getRemoteAddress());
+            this.throttle = throttleRate > 0 ? new TokenBucket(throttleRate, throttleBurst, System.nanoTime()) : null;
+        }
+
+        void read() {
+            try {
+                if (channel.read(in) < 0) {
+                    close();
+                    return;
+                }
+            } catch (IOException ex) {
+                log.warning("Gateway connection " + this + " failed: " + ex);
+                close();
+                return;
+            }
+            in.flip();
+            while (open && in.remaining() >= FRAME_HEADER_SIZE) {
+                int length = in.getInt(in.position());
+                if (length <= 0 || length > maxFrameBytes) {
+                    log.warning("Closing gateway connection " + this + " after a frame of " + length + " bytes");
+                    close();
+                    return;
+                }
+                if (in.remaining() < FRAME_HEADER_SIZE + length)
+                    break;
+                int start = in.position() + FRAME_HEADER_SIZE;
+                in.position(start + length);
+                handle(in.slice(start, length));
+            }
+            in.compact();
+            flush();
+        }
+
+        private void handle(ByteBuffer frame) {
+            byte type = frame.get(0);
+            if (type != BinaryCodec.ENTER_ORDER_RQ && type != BinaryCodec.DELETE_ORDER_RQ) {
+                log.warning("Closing gateway connection " + this + " after an unsupported message type " + type);
+                close();
+                return;
+            }
+            Object request;
+            try {
+                request = codec.decode(frame);
+                if (frame.hasRemaining())
+                    throw new IllegalArgumentException(frame.remaining() + " trailing bytes");
+            } catch (RuntimeException ex) {
+                log.warning("Closing gateway connection " + this + " after a malformed frame: " + ex);
+                close();
+                return;
+            }
+            try {
+                if (request instanceof EnterOrderRq enterOrderRq) {
+                    if (admit(enterOrderRq.getRequestId(), enterOrderRq.getOrderId()))
+                        requestDispatcher.dispatch(enterOrderRq, publisher);
+                } else {
+                    DeleteOrderRq deleteOrderRq = (DeleteOrderRq) request;
+                    if (admit(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId()))
+                        requestDispatcher.dispatch(deleteOrderRq, publisher);
+                }
+            } catch (RuntimeException ex) {
+                log.severe("Could not dispatch gateway request " + request + ": " + ex);
+            }
+        }
+
+        private boolean admit(long requestId, long orderId) {
+            receivedRequests.incrementAndGet();
+            if (throttle == null || throttle.tryAcquire(System.nanoTime()))
+                return true;
+            throttledRequests.incrementAndGet();
+            publish(new OrderRejectedEvent(requestId, orderId, List.of(Message.REQUEST_RATE_LIMIT_EXCEEDED)));
+            return false;
+        }
+
+        void publish(Event event) {
+            if (!open || overflowed)
+                return;
+            if (pendingEvents.incrementAndGet() > maxPendingEvents) {
+                overflowed = true;
+                outbound.clear();
+            } else
+                outbound.add(event);
+            if (Thread.currentThread() != loop && flushScheduled.compareAndSet(false, true)) {
+                pendingFlushes.add(this);
+                selector.wakeup();
+            }
+        }
+
+        void flush() {
+            flushScheduled.set(false);
+            if (!open)
+                return;
+            if (overflowed) {
+                log.warning("Closing gateway connection " + this + " after more than " + maxPendingEvents + " unsent events");
+                close();
+                return;
+            }
+            try {
+                while (true) {
+                    Event event;
+                    while ((event = outbound.peek()) != null) {
+                        int size = codec.sizeOf(event);
+                        if (out.remaining() < FRAME_HEADER_SIZE + size) {
+                            if (out.position() > 0)
+                                break;
+                            out = ByteBuffer.allocate(FRAME_HEADER_SIZE + size);
+                        }
+                        out.putInt(size);
+                        codec.encode(event, out);
+                        outbound.poll();
+                        pendingEvents.decrementAndGet();
+                    }
+                    if (out.position() == 0) {
+                        interest(SelectionKey.OP_READ);
+                        return;
+                    }
+                    out.flip();
+                    channel.write(out);
+                    out.compact();
+                    if (out.position() > 0) {
+                        interest(SelectionKey.OP_WRITE);
+                        return;
+                    }
+                }
+            } catch (IOException ex) {
+                log.warning("Gateway connection " + this + " failed: " + ex);
+                close();
+            }
+        }
+
+        private void interest(int ops) {
+            if (key.interestOps() != ops)
+                key.interestOps(ops);
+        }
+
+        void close() {
+            if (!open)
+                return;
+            open = false;
+            sessions.remove(this);
+            outbound.clear();
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                log.warning("Could not close gateway connection " + this + ": " + ex);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return remoteAddress;
+        }
+    }
+}
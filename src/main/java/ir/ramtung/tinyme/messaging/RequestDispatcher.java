@@ -1,31 +1,91 @@
 package ir.ramtung.tinyme.messaging;
 
+import ir.ramtung.tinyme.domain.service.EngineMetrics;
+import ir.ramtung.tinyme.domain.service.EngineMetrics.Stage;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.request.BatchOrderRq;
 import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
 import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
-import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.domain.service.MatchingShards;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.stereotype.Component;
 
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 @Component
 public class RequestDispatcher {
     private final Logger log = Logger.getLogger(this.getClass().getName());
-    private final OrderHandler orderHandler;
+    private final MatchingShards matchingShards;
+    private final RequestSequencer requestSequencer;
+    private final EngineMetrics metrics;
 
-    public RequestDispatcher(OrderHandler orderHandler) {
-        this.orderHandler = orderHandler;
+    public RequestDispatcher(MatchingShards matchingShards, RequestSequencer requestSequencer, EngineMetrics metrics) {
+        this.matchingShards = matchingShards;
+        this.requestSequencer = requestSequencer;
+        this.metrics = metrics;
     }
 
     @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.EnterOrderRq'")
     public void receiveEnterOrderRq(EnterOrderRq enterOrderRq) {
         log.info("Received message: " + enterOrderRq);
-        orderHandler.handleEnterOrder(enterOrderRq);
+        dispatch(enterOrderRq);
     }
 
     @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.DeleteOrderRq'")
     public void receiveDeleteOrderRq(DeleteOrderRq deleteOrderRq) {
         log.info("Received message: " + deleteOrderRq);
-        orderHandler.handleDeleteOrder(deleteOrderRq);
+        dispatch(deleteOrderRq);
+    }
+
+    @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.BatchOrderRq'")
+    public void receiveBatchOrderRq(BatchOrderRq batchOrderRq) {
+        log.info("Received message: " + batchOrderRq);
+        dispatch(batchOrderRq);
+    }
+
+    public void dispatch(EnterOrderRq enterOrderRq) {
+        long start = metrics.now();
+        if (requestSequencer.isEnabled())
+            requestSequencer.enterOrder(enterOrderRq);
+        else
+            matchingShards.enterOrder(enterOrderRq);
+        metrics.record(Stage.DISPATCH, start);
+    }
+
+    public void dispatch(EnterOrderRq enterOrderRq, Consumer<Event> publisher) {
+        long start = metrics.now();
+        if (requestSequencer.isEnabled())
+            requestSequencer.enterOrder(enterOrderRq, publisher);
+        else
+            matchingShards.enterOrder(enterOrderRq, publisher);
+        metrics.record(Stage.DISPATCH, start);
+    }
+
+    public void dispatch(DeleteOrderRq deleteOrderRq) {
+        long start = metrics.now();
+        if (requestSequencer.isEnabled())
+            requestSequencer.deleteOrder(deleteOrderRq);
+        else
+            matchingShards.deleteOrder(deleteOrderRq);
+        metrics.record(Stage.DISPATCH, start);
+    }
+
+    public void dispatch(DeleteOrderRq deleteOrderRq, Consumer<Event> publisher) {
+        long start = metrics.now();
+        if (requestSequencer.isEnabled())
+            requestSequencer.deleteOrder(deleteOrderRq, publisher);
+        else
+            matchingShards.deleteOrder(deleteOrderRq, publisher);
+        metrics.record(Stage.DISPATCH, start);
+    }
+
+    public void dispatch(BatchOrderRq batchOrderRq) {
+        long start = metrics.now();
+        if (requestSequencer.isEnabled())
+            requestSequencer.batchOrder(batchOrderRq);
+        else
+            matchingShards.batchOrder(batchOrderRq);
+        metrics.record(Stage.DISPATCH, start);
     }
 }
@@ -0,0 +1,190 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.messaging.event.OrderRejectedEvent;
+import ir.ramtung.tinyme.messaging.request.BatchOrderRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Session;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+@Component
+public class RequestListener implements SmartLifecycle {
+    private static final String ENTER_ORDER_RQ = EnterOrderRq.class.getName();
+    private static final String DELETE_ORDER_RQ = DeleteOrderRq.class.getName();
+    private static final String BATCH_ORDER_RQ = BatchOrderRq.class.getName();
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final RequestDispatcher requestDispatcher;
+    private final EventPublisher eventPublisher;
+    private final ConnectionFactory connectionFactory;
+    private final MessageConverter messageConverter;
+    @Value("${requestQueue}")
+    private String requestQueue;
+    @Getter
+    private final boolean enabled;
+    private final int batchSize;
+    private final long receiveTimeoutMillis;
+    private final AtomicLong receivedRequests = new AtomicLong();
+    private final AtomicLong receivedBatches = new AtomicLong();
+    private final AtomicLong discardedRequests = new AtomicLong();
+    private final AtomicLong failedRequests = new AtomicLong();
+    private Thread consumer;
+    private volatile boolean running;
+
+    public RequestListener(RequestDispatcher requestDispatcher,
+                           EventPublisher eventPublisher,
+                           ConnectionFactory connectionFactory,
+                           MessageConverter messageConverter,
+                           @Value("${singleRequestListener:false}") boolean enabled,
+                           @Value("${requestListenerBatchSize:64}") int batchSize,
+                           @Value("${requestListenerReceiveTimeoutMillis:100}") long receiveTimeoutMillis) {
+        this.requestDispatcher = requestDispatcher;
+        this.eventPublisher = eventPublisher;
+        this.connectionFactory = connectionFactory;
+        this.messageConverter = messageConverter;
+        this.enabled = enabled;
+        this.batchSize = Math.max(batchSize, 1);
+        this.receiveTimeoutMillis = receiveTimeoutMillis;
+    }
+
+    public long getReceivedRequests() {
+        return receivedRequests.get();
+    }
+
+    public long getReceivedBatches() {
+        return receivedBatches.get();
+    }
+
+    public long getDiscardedRequests() {
+        return discardedRequests.get();
+    }
+
+    public long getFailedRequests() {
+        return failedRequests.get();
+    }
+
+    // Only requests that cannot be read are discarded; one that fails in dispatch is rejected, since the
+    // batch it came in is committed with the requests dispatched before it.
+    public void onMessage(jakarta.jms.Message message) throws JMSException {
+        String type = message.getStringProperty(MessagingConfig.TYPE_ID_PROPERTY_NAME);
+        if (!ENTER_ORDER_RQ.equals(type) && !DELETE_ORDER_RQ.equals(type) && !BATCH_ORDER_RQ.equals(type)) {
+            log.warning("Discarding request of unknown type " + type);
+            discardedRequests.incrementAndGet();
+            return;
+        }
+        Object request;
+        try {
+            request = messageConverter.fromMessage(message);
+        } catch (MessageConversionException ex) {
+            log.warning("Discarding request that could not be converted: " + ex.getMessage());
+            discardedRequests.incrementAndGet();
+            return;
+        }
+        if (!(request instanceof EnterOrderRq || request instanceof DeleteOrderRq || request instanceof BatchOrderRq)) {
+            log.warning("Discarding " + type + " that converted to " + request);
+            discardedRequests.incrementAndGet();
+            return;
+        }
+        log.info("Received message: " + request);
+        try {
+            if (request instanceof EnterOrderRq enterOrderRq)
+                requestDispatcher.dispatch(enterOrderRq);
+            else if (request instanceof DeleteOrderRq deleteOrderRq)
+                requestDispatcher.dispatch(deleteOrderRq);
+            else
+                requestDispatcher.dispatch((BatchOrderRq) request);
+        } catch (RuntimeException ex) {
+            log.severe("Could not dispatch " + request + ": " + ex);
+            eventPublisher.publish(rejectionOf(request));
+            failedRequests.incrementAndGet();
+            return;
+        }
+        receivedRequests.incrementAndGet();
+    }
+
+    private static OrderRejectedEvent rejectionOf(Object request) {
+        List<String> errors = List.of(Message.REQUEST_PROCESSING_FAILED);
+        if (request instanceof EnterOrderRq enterOrderRq)
+            return new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), errors);
+        if (request instanceof DeleteOrderRq deleteOrderRq)
+            return new OrderRejectedEvent(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId(), errors);
+        return new OrderRejectedEvent(((BatchOrderRq) request).getRequestId(), 0, errors);
+    }
+
+    private void consume() {
+        while (running) {
+            try (Connection connection = connectionFactory.createConnection()) {
+                Session session = connection.createSession(true, Session.SESSION_TRANSACTED);
+                MessageConsumer messageConsumer = session.createConsumer(session.createQueue(requestQueue));
+                connection.start();
+                while (running)
+                    receiveBatch(session, messageConsumer);
+            } catch (JMSException ex) {
+                log.severe("Request listener lost its connection: " + ex);
+                pause();
+            }
+        }
+    }
+
+    private void receiveBatch(Session session, MessageConsumer messageConsumer) throws JMSException {
+        jakarta.jms.Message message = messageConsumer.receive(receiveTimeoutMillis);
+        if (message == null)
+            return;
+        int count = 0;
+        while (message != null) {
+            onMessage(message);
+            if (++count == batchSize)
+                break;
+            message = messageConsumer.receiveNoWait();
+        }
+        session.commit();
+        receivedBatches.incrementAndGet();
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(receiveTimeoutMillis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running)
+            return;
+        running = true;
+        consumer = new Thread(this::consume, "request-listener");
+        consumer.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!running)
+            return;
+        running = false;
+        try {
+            consumer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
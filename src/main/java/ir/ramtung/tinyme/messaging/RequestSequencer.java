@@ -0,0 +1,233 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.request.BatchOrderRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.RequestJournal;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+@Component
+public class RequestSequencer implements SmartLifecycle {
+    private static final int SPIN_TRIES = 100;
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final OrderHandler orderHandler;
+    private final EventPublisher eventPublisher;
+    private final RequestJournal requestJournal;
+    @Getter
+    private final boolean enabled;
+    private final WaitStrategy waitStrategy;
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final AtomicLong validated = new AtomicLong(-1);
+    private final AtomicLong matched = new AtomicLong(-1);
+    private final AtomicLong published = new AtomicLong(-1);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition advanced = lock.newCondition();
+    private final List<Thread> stages = new ArrayList<>();
+    private volatile boolean running;
+
+    public RequestSequencer(OrderHandler orderHandler,
+                            EventPublisher eventPublisher,
+                            RequestJournal requestJournal,
+                            @Value("${sequencerEnabled:false}") boolean enabled,
+                            @Value("${sequencerBufferSize:1024}") int bufferSize,
+                            @Value("${sequencerWaitStrategy:BLOCKING}") WaitStrategy waitStrategy) {
+        this.orderHandler = orderHandler;
+        this.eventPublisher = eventPublisher;
+        this.requestJournal = requestJournal;
+        this.enabled = enabled;
+        this.waitStrategy = waitStrategy;
+        int capacity = Integer.highestOneBit(Math.max(bufferSize, 2) - 1) << 1;
+        this.slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++)
+            slots[i] = new Slot();
+        this.mask = capacity - 1;
+    }
+
+    public void enterOrder(EnterOrderRq enterOrderRq) {
+        claimAndPublish(enterOrderRq, null);
+    }
+
+    public void enterOrder(EnterOrderRq enterOrderRq, Consumer<Event> publisher) {
+        claimAndPublish(enterOrderRq, publisher);
+    }
+
+    public void deleteOrder(DeleteOrderRq deleteOrderRq) {
+        claimAndPublish(deleteOrderRq, null);
+    }
+
+    public void deleteOrder(DeleteOrderRq deleteOrderRq, Consumer<Event> publisher) {
+        claimAndPublish(deleteOrderRq, publisher);
+    }
+
+    public void batchOrder(BatchOrderRq batchOrderRq) {
+        claimAndPublish(batchOrderRq, null);
+    }
+
+    private void claimAndPublish(Object request, Consumer<Event> publisher) {
+        long sequence = claimed.incrementAndGet();
+        for (int tries = 0; published.get() < sequence - slots.length; tries++)
+            idle(tries);
+        Slot slot = slots[(int) sequence & mask];
+        slot.request = request;
+        slot.publisher = publisher;
+        for (int tries = 0; cursor.get() != sequence - 1; tries++)
+            idle(tries);
+        cursor.set(sequence);
+        signalAdvance();
+    }
+
+    private void validate(Slot slot) {
+        if (slot.request instanceof EnterOrderRq enterOrderRq)
+            slot.errors = orderHandler.validateEnterOrderRq(enterOrderRq);
+        else if (slot.request instanceof BatchOrderRq batchOrderRq)
+            slot.batchErrors = orderHandler.validateBatchOrderRq(batchOrderRq);
+        else
+            slot.errors = orderHandler.validateDeleteOrderRq((DeleteOrderRq) slot.request);
+    }
+
+    private void match(Slot slot) {
+        requestJournal.append(slot.request);
+        if (slot.request instanceof EnterOrderRq enterOrderRq)
+            orderHandler.handleEnterOrder(enterOrderRq, slot.errors, slot.collector);
+        else if (slot.request instanceof BatchOrderRq batchOrderRq)
+            orderHandler.handleBatchOrder(batchOrderRq, slot.batchErrors, slot.collector);
+        else
+            orderHandler.handleDeleteOrder((DeleteOrderRq) slot.request, slot.errors, slot.collector);
+    }
+
+    private void publish(Slot slot) {
+        for (Event event : slot.events) {
+            if (slot.publisher == null)
+                eventPublisher.publish(event);
+            else
+                slot.publisher.accept(event);
+        }
+        slot.events.clear();
+        slot.publisher = null;
+        slot.errors = null;
+        slot.batchErrors = null;
+        slot.request = null;
+    }
+
+    private void runStage(AtomicLong upstream, AtomicLong own, Consumer<Slot> handler) {
+        long next = own.get() + 1;
+        while (true) {
+            long available = upstream.get();
+            for (int tries = 0; available < next; tries++) {
+                if (!running)
+                    return;
+                idle(tries);
+                available = upstream.get();
+            }
+            for (long sequence = next; sequence <= available; sequence++) {
+                Slot slot = slots[(int) sequence & mask];
+                try {
+                    handler.accept(slot);
+                } catch (RuntimeException ex) {
+                    log.severe("Sequenced request " + slot.request + " failed: " + ex);
+                }
+            }
+            own.set(available);
+            signalAdvance();
+            next = available + 1;
+        }
+    }
+
+    private void idle(int tries) {
+        switch (waitStrategy) {
+            case BUSY_SPIN -> Thread.onSpinWait();
+            case YIELDING -> {
+                if (tries < SPIN_TRIES)
+                    Thread.onSpinWait();
+                else
+                    Thread.yield();
+            }
+            case BLOCKING -> {
+                lock.lock();
+                try {
+                    advanced.await(1, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private void signalAdvance() {
+        if (waitStrategy != WaitStrategy.BLOCKING)
+            return;
+        lock.lock();
+        try {
+            advanced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running)
+            return;
+        running = true;
+        stages.add(new Thread(() -> runStage(cursor, validated, this::validate), "sequencer-validate"));
+        stages.add(new Thread(() -> runStage(validated, matched, this::match), "sequencer-match"));
+        stages.add(new Thread(() -> runStage(matched, published, this::publish), "sequencer-publish"));
+        stages.forEach(Thread::start);
+    }
+
+    @Override
+    public void stop() {
+        if (!running)
+            return;
+        for (int tries = 0; published.get() < claimed.get(); tries++)
+            idle(tries);
+        running = false;
+        signalAdvance();
+        try {
+            for (Thread stage : stages)
+                stage.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        stages.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 1024;
+    }
+
+    private static class Slot {
+        Object request;
+        List<String> errors;
+        List<List<String>> batchErrors;
+        Consumer<Event> publisher;
+        final List<Event> events = new ArrayList<>();
+        final Consumer<Event> collector = events::add;
+    }
+}
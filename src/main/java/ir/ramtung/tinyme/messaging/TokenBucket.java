@@ -0,0 +1,26 @@
+package ir.ramtung.tinyme.messaging;
+
+class TokenBucket {
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(long ratePerSecond, long burst, long now) {
+        this.tokensPerNano = ratePerSecond / NANOS_PER_SECOND;
+        this.capacity = Math.max(burst, 1);
+        this.tokens = capacity;
+        this.refilledAt = now;
+    }
+
+    boolean tryAcquire(long now) {
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+        if (tokens < 1)
+            return false;
+        tokens--;
+        return true;
+    }
+}
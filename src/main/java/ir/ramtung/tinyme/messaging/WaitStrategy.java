@@ -0,0 +1,7 @@
+package ir.ramtung.tinyme.messaging;
+
+public enum WaitStrategy {
+    BLOCKING,
+    YIELDING,
+    BUSY_SPIN
+}
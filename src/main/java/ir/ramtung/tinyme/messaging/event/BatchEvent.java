@@ -0,0 +1,26 @@
+package ir.ramtung.tinyme.messaging.event;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@EqualsAndHashCode(callSuper = false)
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchEvent extends Event {
+    private long requestId;
+    @JsonTypeInfo(use = JsonTypeInfo.Id.CLASS)
+    private List<Event> events;
+
+    public BatchEvent(LocalDateTime time, long requestId, List<Event> events) {
+        super(time);
+        this.requestId = requestId;
+        this.events = events;
+    }
+}
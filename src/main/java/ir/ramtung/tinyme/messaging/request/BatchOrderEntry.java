@@ -0,0 +1,29 @@
+package ir.ramtung.tinyme.messaging.request;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchOrderEntry {
+    private EnterOrderRq enterOrderRq;
+    private DeleteOrderRq deleteOrderRq;
+
+    public static BatchOrderEntry of(EnterOrderRq enterOrderRq) {
+        return new BatchOrderEntry(enterOrderRq, null);
+    }
+
+    public static BatchOrderEntry of(DeleteOrderRq deleteOrderRq) {
+        return new BatchOrderEntry(null, deleteOrderRq);
+    }
+
+    @JsonIgnore
+    public String getSecurityIsin() {
+        if (enterOrderRq != null)
+            return enterOrderRq.getSecurityIsin();
+        return deleteOrderRq == null ? null : deleteOrderRq.getSecurityIsin();
+    }
+}
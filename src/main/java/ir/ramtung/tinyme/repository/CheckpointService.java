@@ -0,0 +1,396 @@
+package ir.ramtung.tinyme.repository;
+
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.exceptions.CsvException;
+import ir.ramtung.tinyme.domain.entity.*;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+@Component
+public class CheckpointService implements SmartLifecycle {
+    private static final String MARKER = "CHECKPOINT";
+    private static final String BROKERS = "brokers";
+    private static final String SHAREHOLDERS = "shareholders";
+    private static final String SECURITIES = "securities";
+    private static final String SUFFIX = ".csv";
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final BrokerRepository brokerRepository;
+    private final ShareholderRepository shareholderRepository;
+    private final SecurityRepository securityRepository;
+    @Getter
+    private final boolean enabled;
+    private final Path directory;
+    private final long intervalMillis;
+    private final int maxDenseLevels;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Set<String> dirtySecurities = ConcurrentHashMap.newKeySet();
+    private final Set<Long> dirtyBrokers = ConcurrentHashMap.newKeySet();
+    private final Set<Long> dirtyShareholders = ConcurrentHashMap.newKeySet();
+    private final Object wakeup = new Object();
+    private volatile boolean full = true;
+    private boolean pendingCleared;
+    private long sequence;
+    private long checkpoints;
+    private long writtenFiles;
+    private Thread checkpointer;
+    private volatile boolean running;
+
+    public CheckpointService(BrokerRepository brokerRepository,
+                             ShareholderRepository shareholderRepository,
+                             SecurityRepository securityRepository,
+                             @Value("${checkpointEnabled:false}") boolean enabled,
+                             @Value("${checkpointDirectory:checkpoint}") String directory,
+                             @Value("${checkpointIntervalMillis:60000}") long intervalMillis,
+                             @Value("${denseLadderMaxLevels:65536}") int maxDenseLevels) {
+        this.brokerRepository = brokerRepository;
+        this.shareholderRepository = shareholderRepository;
+        this.securityRepository = securityRepository;
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.intervalMillis = intervalMillis;
+        this.maxDenseLevels = maxDenseLevels;
+    }
+
+    public void beginRequest() {
+        if (enabled)
+            lock.readLock().lock();
+    }
+
+    public void endRequest() {
+        if (enabled)
+            lock.readLock().unlock();
+    }
+
+    public void touch(Security security) {
+        if (enabled && security != null)
+            dirtySecurities.add(security.getIsin());
+    }
+
+    public void touch(Broker broker) {
+        if (enabled && broker != null)
+            dirtyBrokers.add(broker.getBrokerId());
+    }
+
+    public void touch(Shareholder shareholder) {
+        if (enabled && shareholder != null)
+            dirtyShareholders.add(shareholder.getShareholderId());
+    }
+
+    public boolean exists() {
+        return enabled && Files.isRegularFile(directory.resolve(MARKER));
+    }
+
+    public synchronized long getCheckpoints() {
+        return checkpoints;
+    }
+
+    public synchronized long getWrittenFiles() {
+        return writtenFiles;
+    }
+
+    public synchronized void checkpoint() throws IOException {
+        if (!enabled)
+            return;
+        List<EntityState> states;
+        lock.writeLock().lock();
+        try {
+            states = capture();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (states.isEmpty())
+            return;
+        List<EntityFile> files = new ArrayList<>(states.size());
+        for (EntityState state : states)
+            files.add(state.toFile());
+        try {
+            if (!pendingCleared) {
+                clearPending(-1);
+                pendingCleared = true;
+            }
+            publish(sequence + 1, files);
+        } catch (IOException | RuntimeException ex) {
+            full = true;
+            pendingCleared = false;
+            throw ex;
+        }
+        sequence++;
+        checkpoints++;
+        writtenFiles += files.size();
+        log.info("Checkpoint " + sequence + " wrote " + files.size() + " files");
+    }
+
+    private List<EntityState> capture() {
+        List<EntityState> states = new ArrayList<>();
+        if (full) {
+            brokerRepository.allBrokers().forEach(broker -> states.add(new BrokerState(broker, broker.getCredit())));
+            shareholderRepository.allShareholders().forEach(shareholder -> states.add(new ShareholderState(shareholder, shareholder.getPositions())));
+            securityRepository.allSecurities().forEach(security -> states.add(securityState(security)));
+            full = false;
+        } else {
+            for (Long brokerId : dirtyBrokers) {
+                Broker broker = brokerRepository.findBrokerById(brokerId);
+                states.add(new BrokerState(broker, broker.getCredit()));
+            }
+            for (Long shareholderId : dirtyShareholders) {
+                Shareholder shareholder = shareholderRepository.findShareholderById(shareholderId);
+                states.add(new ShareholderState(shareholder, shareholder.getPositions()));
+            }
+            for (String isin : dirtySecurities)
+                states.add(securityState(securityRepository.findSecurityByIsin(isin)));
+        }
+        dirtyBrokers.clear();
+        dirtyShareholders.clear();
+        dirtySecurities.clear();
+        return states;
+    }
+
+    private static SecurityState securityState(Security security) {
+        List<Order> orders = new ArrayList<>();
+        security.getOrderBook().forEachOrder(Side.BUY, order -> orders.add(order.copy()));
+        security.getOrderBook().forEachOrder(Side.SELL, order -> orders.add(order.copy()));
+        return new SecurityState(security, orders);
+    }
+
+    private void publish(long next, List<EntityFile> files) throws IOException {
+        for (String kind : List.of(BROKERS, SHAREHOLDERS, SECURITIES))
+            Files.createDirectories(directory.resolve(kind));
+        List<Path> pending = new ArrayList<>(files.size());
+        for (EntityFile file : files) {
+            Path path = directory.resolve(file.kind()).resolve(file.id() + SUFFIX + "." + next);
+            write(path, file.content().getBytes(StandardCharsets.UTF_8));
+            pending.add(path);
+        }
+        Path marker = directory.resolve(MARKER + ".tmp");
+        write(marker, String.valueOf(next).getBytes(StandardCharsets.UTF_8));
+        Files.move(marker, directory.resolve(MARKER), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        for (Path path : pending)
+            promote(path);
+    }
+
+    private static void write(Path path, byte[] content) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(true);
+        }
+    }
+
+    private static void promote(Path pending) throws IOException {
+        String name = pending.getFileName().toString();
+        Path target = pending.resolveSibling(name.substring(0, name.lastIndexOf('.')));
+        Files.move(pending, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public synchronized void load() throws IOException {
+        sequence = committedSequence();
+        clearPending(sequence);
+        pendingCleared = true;
+        brokerRepository.clear();
+        shareholderRepository.clear();
+        securityRepository.clear();
+        for (Path path : files(BROKERS))
+            brokerRepository.addBroker(DataLoader.parseBroker(read(path).get(1)));
+        Map<Shareholder, List<String[]>> positions = new HashMap<>();
+        for (Path path : files(SHAREHOLDERS)) {
+            List<String[]> rows = read(path);
+            Shareholder shareholder = DataLoader.parseShareholder(rows.get(1));
+            shareholderRepository.addShareholder(shareholder);
+            positions.put(shareholder, rows.subList(3, rows.size()));
+        }
+        Map<Security, List<String[]>> orders = new HashMap<>();
+        for (Path path : files(SECURITIES)) {
+            List<String[]> rows = read(path);
+            Security security = DataLoader.parseSecurity(rows.get(1), maxDenseLevels);
+            securityRepository.addSecurity(security);
+            orders.put(security, rows.subList(3, rows.size()));
+        }
+        positions.forEach((shareholder, rows) -> {
+            for (String[] row : rows)
+                shareholder.incPosition(securityRepository.findSecurityByIsin(row[0]), Integer.parseInt(row[1]));
+        });
+        orders.forEach((security, rows) -> security.getOrderBook().bulkLoad(rows.stream()
+                .map(row -> DataLoader.parseOrder(row, security,
+                        brokerRepository.findBrokerById(Long.parseLong(row[6])),
+                        shareholderRepository.findShareholderById(Long.parseLong(row[7]))))
+                .toList()));
+        dirtyBrokers.clear();
+        dirtyShareholders.clear();
+        dirtySecurities.clear();
+        full = false;
+        log.info("Checkpoint " + sequence + " loaded from " + directory);
+    }
+
+    private long committedSequence() throws IOException {
+        return Long.parseLong(Files.readString(directory.resolve(MARKER), StandardCharsets.UTF_8).trim());
+    }
+
+    private void clearPending(long committed) throws IOException {
+        String committedSuffix = SUFFIX + "." + committed;
+        for (String kind : List.of(BROKERS, SHAREHOLDERS, SECURITIES)) {
+            Path kindDirectory = directory.resolve(kind);
+            if (!Files.isDirectory(kindDirectory))
+                continue;
+            try (Stream<Path> paths = Files.list(kindDirectory)) {
+                for (Path path : paths.toList()) {
+                    String name = path.getFileName().toString();
+                    if (name.endsWith(committedSuffix))
+                        promote(path);
+                    else if (!name.endsWith(SUFFIX))
+                        Files.delete(path);
+                }
+            }
+        }
+    }
+
+    private List<Path> files(String kind) throws IOException {
+        Path kindDirectory = directory.resolve(kind);
+        if (!Files.isDirectory(kindDirectory))
+            return List.of();
+        try (Stream<Path> paths = Files.list(kindDirectory)) {
+            return paths.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+    }
+
+    private static List<String[]> read(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+             CSVReader csvReader = new CSVReaderBuilder(reader).build()) {
+            return csvReader.readAll();
+        } catch (CsvException ex) {
+            throw new IOException("Could not parse checkpoint file " + path, ex);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            synchronized (wakeup) {
+                try {
+                    if (running)
+                        wakeup.wait(intervalMillis);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+            }
+            if (!running)
+                return;
+            try {
+                checkpoint();
+            } catch (IOException | RuntimeException ex) {
+                log.severe("Checkpoint failed: " + ex);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled || running)
+            return;
+        if (sequence == 0 && exists()) {
+            try {
+                sequence = committedSequence();
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Could not read the checkpoint marker", ex);
+            }
+        }
+        running = true;
+        if (intervalMillis > 0) {
+            checkpointer = new Thread(this::run, "checkpointer");
+            checkpointer.setDaemon(true);
+            checkpointer.start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (!running)
+            return;
+        synchronized (wakeup) {
+            running = false;
+            wakeup.notifyAll();
+        }
+        if (checkpointer != null) {
+            try {
+                checkpointer.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            checkpointer = null;
+        }
+        try {
+            checkpoint();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not write the final checkpoint", ex);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 1536;
+    }
+
+    private record EntityFile(String kind, String id, String content) {
+    }
+
+    private interface EntityState {
+        EntityFile toFile();
+    }
+
+    private record BrokerState(Broker broker, long credit) implements EntityState {
+        public EntityFile toFile() {
+            return new EntityFile(BROKERS, String.valueOf(broker.getBrokerId()),
+                    "brokerId,name,credit\n" + broker.getBrokerId() + "," + broker.getName() + "," + credit + "\n");
+        }
+    }
+
+    private record ShareholderState(Shareholder shareholder, Map<Security, Integer> positions) implements EntityState {
+        public EntityFile toFile() {
+            StringBuilder content = new StringBuilder("shareholderId,name\n")
+                    .append(DataLoader.getCSVString(shareholder)).append('\n')
+                    .append("isin,positions\n");
+            for (Map.Entry<Security, Integer> position : positions.entrySet())
+                content.append(position.getKey().getIsin()).append(',').append(position.getValue()).append('\n');
+            return new EntityFile(SHAREHOLDERS, String.valueOf(shareholder.getShareholderId()), content.toString());
+        }
+    }
+
+    private record SecurityState(Security security, List<Order> orders) implements EntityState {
+        public EntityFile toFile() {
+            StringBuilder content = new StringBuilder("isin,tickSize,lotSize,lowestPrice,highestPrice\n")
+                    .append(DataLoader.getCSVString(security)).append('\n')
+                    .append("orderId,isin,side,initialQuantity,quantity,price,brokerId,shareholderId,entryTime,peakSize,displayedQuantity,minimumExecutionQuantity\n");
+            for (Order order : orders)
+                content.append(DataLoader.getCSVString(order)).append('\n');
+            return new EntityFile(SECURITIES, security.getIsin(), content.toString());
+        }
+    }
+}
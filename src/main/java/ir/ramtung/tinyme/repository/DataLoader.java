@@ -11,27 +11,49 @@ import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
 
 import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.PrintWriter;
+import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 @Component
 @Profile("!test")
 public class DataLoader {
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    private static final String MARKER = "EXPORTED";
+
     private final Logger log = Logger.getLogger(this.getClass().getName());
     private final BrokerRepository brokerRepository;
     private final ShareholderRepository shareholderRepository;
     private final SecurityRepository securityRepository;
+    private final SnapshotStore snapshotStore;
+    private final RequestJournal requestJournal;
+    private final CheckpointService checkpointService;
 
-    public DataLoader(BrokerRepository brokerRepository, ShareholderRepository shareholderRepository, SecurityRepository securityRepository) {
+    public DataLoader(BrokerRepository brokerRepository, ShareholderRepository shareholderRepository, SecurityRepository securityRepository, SnapshotStore snapshotStore, RequestJournal requestJournal, CheckpointService checkpointService) {
         this.brokerRepository = brokerRepository;
         this.shareholderRepository = shareholderRepository;
         this.securityRepository = securityRepository;
+        this.snapshotStore = snapshotStore;
+        this.requestJournal = requestJournal;
+        this.checkpointService = checkpointService;
     }
 
     @Value("classpath:persistence/broker.csv")
@@ -44,206 +66,366 @@ public class DataLoader {
     private Resource positionCsvResource;
     @Value("classpath:persistence/orderbook.csv")
     private Resource orderBookCsvResource;
+    @Value("${dataLoaderParallelism:0}")
+    private int parallelism;
+    @Value("${denseLadderMaxLevels:65536}")
+    private int maxDenseLevels;
 
     @PostConstruct
     public void loadAll() throws Exception {
-        loadBrokers();
-        loadShareholders();
-        loadSecurities();
-        loadPositions();
-        loadOrderBook();
+        long journalPosition = 0;
+        if (checkpointService.exists() && !requestJournal.isEnabled())
+            checkpointService.load();
+        else if (snapshotStore.exists())
+            journalPosition = snapshotStore.load();
+        else
+            journalPosition = importCsv();
+        requestJournal.replayFrom(journalPosition);
     }
 
+    // The saved state records the journal position it covers, so a crash before the journal is truncated
+    // replays only the requests that came after it.
     @PreDestroy
     public void saveAll() throws Exception {
         System.out.print("Saving persistent data ...");
-        saveBrokers();
-        saveShareholdersAndPositions();
-        saveSecuritiesAndOrderBooks();
+        long journalPosition = requestJournal.getPosition();
+        if (snapshotStore.isEnabled())
+            snapshotStore.save(journalPosition);
+        else
+            exportCsv(journalPosition);
+        requestJournal.truncate(journalPosition);
         System.out.println(", done!");
     }
 
-    private void loadBrokers() throws Exception {
-        brokerRepository.clear();
-      try (Reader reader = new FileReader(brokerCsvResource.getFile())) {
-            try (CSVReader csvReader = new CSVReaderBuilder(reader).withSkipLines(1).build()) {
-                String[] line;
-                while ((line = csvReader.readNext()) != null) {
-                    brokerRepository.addBroker(Broker.builder()
-                            .brokerId(Long.parseLong(line[0]))
-                            .name(line[1])
-                            .credit(Long.parseLong(line[0]))
-                            .build());
-                }
-            }
+    public long importCsv() throws IOException {
+        long[] committed = committedExport();
+        clearPending(committed[0]);
+        ForkJoinPool pool = newPool();
+        try {
+            CompletableFuture<List<String[]>> brokerRows = readRows(brokerCsvResource, pool);
+            CompletableFuture<List<String[]>> shareholderRows = readRows(shareholderCsvResource, pool);
+            CompletableFuture<List<String[]>> securityRows = readRows(securityCsvResource, pool);
+            CompletableFuture<List<String[]>> positionRows = readRows(positionCsvResource, pool);
+            CompletableFuture<List<String[]>> orderRows = readRows(orderBookCsvResource, pool);
+
+            CompletableFuture<List<Broker>> brokers = brokerRows.thenApplyAsync(rows -> parse(pool, rows, DataLoader::parseBroker), pool);
+            CompletableFuture<List<Shareholder>> shareholders = shareholderRows.thenApplyAsync(rows -> parse(pool, rows, DataLoader::parseShareholder), pool);
+            CompletableFuture<List<Security>> securities = securityRows.thenApplyAsync(rows -> parse(pool, rows, line -> parseSecurity(line, maxDenseLevels)), pool);
+
+            brokerRepository.clear();
+            brokers.join().forEach(brokerRepository::addBroker);
+            log.info("Brokers loaded");
+            shareholderRepository.clear();
+            shareholders.join().forEach(shareholderRepository::addShareholder);
+            log.info("Shareholders loaded");
+            securityRepository.clear();
+            securities.join().forEach(securityRepository::addSecurity);
+            log.info("Securities loaded");
+
+            CompletableFuture<List<Position>> positions = positionRows.thenApplyAsync(rows -> parse(pool, rows, this::parsePosition), pool);
+            CompletableFuture<List<Order>> orders = orderRows.thenApplyAsync(rows -> parse(pool, rows, this::parseOrder), pool);
+
+            for (Position position : positions.join())
+                position.shareholder().incPosition(position.security(), position.quantity());
+            log.info("Positions loaded");
+
+            Map<Security, List<Order>> ordersBySecurity = new LinkedHashMap<>();
+            for (Order order : orders.join())
+                ordersBySecurity.computeIfAbsent(order.getSecurity(), security -> new ArrayList<>()).add(order);
+            pool.submit(() -> ordersBySecurity.entrySet().parallelStream()
+                    .forEach(entry -> entry.getKey().getOrderBook().bulkLoad(entry.getValue()))).join();
+            log.info("Order Book loaded");
+        } finally {
+            pool.shutdown();
         }
-        log.info("Brokers loaded");
+        return committed[1];
     }
 
-    private void loadShareholders() throws Exception {
-        shareholderRepository.clear();
-        try (Reader reader = new FileReader(shareholderCsvResource.getFile())) {
-            try (CSVReader csvReader = new CSVReaderBuilder(reader).withSkipLines(1).build()) {
-                String[] line;
-                while ((line = csvReader.readNext()) != null) {
-                    shareholderRepository.addShareholder(Shareholder.builder()
-                            .shareholderId(Long.parseLong(line[0]))
-                            .name(line[1])
-                            .build());
-                }
-            }
+    // Like the checkpoint, the files are written next to the live ones with the export's generation as a
+    // suffix and only replace them once the marker naming that generation and the journal position is moved
+    // into place; an import after a crash promotes the committed generation and drops any other.
+    public void exportCsv(long journalPosition) throws IOException {
+        long generation = committedExport()[0] + 1;
+        clearPending(generation - 1);
+        ForkJoinPool pool = newPool();
+        try {
+            CompletableFuture.allOf(
+                    CompletableFuture.runAsync(() -> saveBrokers(pool, generation), pool),
+                    CompletableFuture.runAsync(() -> saveShareholdersAndPositions(pool, generation), pool),
+                    CompletableFuture.runAsync(() -> saveSecuritiesAndOrderBooks(pool, generation), pool)
+            ).join();
+        } finally {
+            pool.shutdown();
+        }
+        Path marker = marker();
+        Path pendingMarker = marker.resolveSibling(MARKER + ".tmp");
+        try (FileChannel channel = FileChannel.open(pendingMarker, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap((generation + "," + journalPosition).getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
         }
-        log.info("Shareholders loaded");
+        Files.move(pendingMarker, marker, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        clearPending(generation);
+    }
+
+    private long[] committedExport() throws IOException {
+        Path marker = marker();
+        if (!Files.isRegularFile(marker))
+            return new long[]{0, 0};
+        String[] fields = Files.readString(marker, StandardCharsets.UTF_8).trim().split(",");
+        return new long[]{Long.parseLong(fields[0]), Long.parseLong(fields[1])};
     }
 
-    private void loadSecurities() throws Exception {
-        securityRepository.clear();
-        try (Reader reader = new FileReader(securityCsvResource.getFile())) {
-            try (CSVReader csvReader = new CSVReaderBuilder(reader).withSkipLines(1).build()) {
-                String[] line;
-                while ((line = csvReader.readNext()) != null) {
-                    securityRepository.addSecurity(Security.builder()
-                            .isin(line[0])
-                            .tickSize(Integer.parseInt(line[1]))
-                            .lotSize(Integer.parseInt(line[2]))
-                            .build());
+    private void clearPending(long committed) throws IOException {
+        for (Resource resource : csvResources()) {
+            Path file = resource.getFile().toPath();
+            if (file.getParent() == null || !Files.isDirectory(file.getParent()))
+                continue;
+            String prefix = file.getFileName() + ".";
+            try (Stream<Path> paths = Files.list(file.getParent())) {
+                for (Path path : paths.toList()) {
+                    String name = path.getFileName().toString();
+                    if (!name.startsWith(prefix) || !name.substring(prefix.length()).chars().allMatch(Character::isDigit))
+                        continue;
+                    if (name.equals(prefix + committed))
+                        Files.move(path, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    else
+                        Files.delete(path);
                 }
             }
         }
-        log.info("Securities loaded");
     }
 
-    private void loadPositions() throws Exception {
-        try (Reader reader = new FileReader(positionCsvResource.getFile())) {
-            try (CSVReader csvReader = new CSVReaderBuilder(reader).withSkipLines(1).build()) {
-                String[] line;
-                while ((line = csvReader.readNext()) != null) {
-                    Shareholder shareholder = shareholderRepository.findShareholderById(Long.parseLong(line[0]));
-                    Security security = securityRepository.findSecurityByIsin(line[1]);
-                    shareholder.incPosition(security, Integer.parseInt(line[2]));
+    private Path marker() throws IOException {
+        return brokerCsvResource.getFile().toPath().resolveSibling(MARKER);
+    }
+
+    private List<Resource> csvResources() {
+        return List.of(brokerCsvResource, shareholderCsvResource, securityCsvResource, positionCsvResource, orderBookCsvResource);
+    }
+
+    private ForkJoinPool newPool() {
+        return new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    private static CompletableFuture<List<String[]>> readRows(Resource resource, ForkJoinPool pool) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Reader reader = new FileReader(resource.getFile())) {
+                try (CSVReader csvReader = new CSVReaderBuilder(reader).withSkipLines(1).build()) {
+                    return csvReader.readAll();
                 }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            } catch (Exception ex) {
+                throw new IllegalStateException("Could not read " + resource.getFilename(), ex);
             }
-        }
-        log.info("Positions loaded");
+        }, pool);
+    }
+
+    private static <T> List<T> parse(ForkJoinPool pool, List<String[]> rows, Function<String[], T> parser) {
+        return pool.submit(() -> rows.parallelStream().map(parser).toList()).join();
+    }
+
+    private static <T> List<String> format(ForkJoinPool pool, List<T> items, Function<T, String> formatter) {
+        return pool.submit(() -> items.parallelStream().map(formatter).toList()).join();
+    }
+
+    static Broker parseBroker(String[] line) {
+        return Broker.builder()
+                .brokerId(Long.parseLong(line[0]))
+                .name(line[1])
+                .credit(Long.parseLong(line[2]))
+                .build();
+    }
+
+    static Shareholder parseShareholder(String[] line) {
+        return Shareholder.builder()
+                .shareholderId(Long.parseLong(line[0]))
+                .name(line[1])
+                .build();
+    }
+
+    static Security parseSecurity(String[] line, int maxDenseLevels) {
+        int tickSize = Integer.parseInt(line[1]);
+        OrderBook orderBook;
+        if (line.length > 4 && !line[3].isEmpty() && !line[4].isEmpty())
+            orderBook = new OrderBook(new PriceBand(Integer.parseInt(line[3]), Integer.parseInt(line[4])), tickSize, maxDenseLevels);
+        else
+            orderBook = new OrderBook();
+        return Security.builder()
+                .isin(line[0])
+                .tickSize(tickSize)
+                .lotSize(Integer.parseInt(line[2]))
+                .orderBook(orderBook)
+                .build();
+    }
+
+    private record Position(Shareholder shareholder, Security security, int quantity) {
     }
 
-    private void loadOrderBook() throws Exception {
-        LinkedList<Order> orders = new LinkedList<>();
-        try (Reader reader = new FileReader(orderBookCsvResource.getFile())) {
-            try (CSVReader csvReader = new CSVReaderBuilder(reader).withSkipLines(1).build()) {
-                String[] line;
-                while ((line = csvReader.readNext()) != null) {
-                    Security security = securityRepository.findSecurityByIsin(line[1]);
-                    Broker broker = brokerRepository.findBrokerById(Long.parseLong(line[6]));
-                    Shareholder shareholder = shareholderRepository.findShareholderById(Long.parseLong(line[7]));
+    private Position parsePosition(String[] line) {
+        return new Position(shareholderRepository.findShareholderById(Long.parseLong(line[0])),
+                securityRepository.findSecurityByIsin(line[1]),
+                Integer.parseInt(line[2]));
+    }
+
+    private Order parseOrder(String[] line) {
+        return parseOrder(line,
+                securityRepository.findSecurityByIsin(line[1]),
+                brokerRepository.findBrokerById(Long.parseLong(line[6])),
+                shareholderRepository.findShareholderById(Long.parseLong(line[7])));
+    }
+
+    static Order parseOrder(String[] line, Security security, Broker broker, Shareholder shareholder) {
 //orderId,isin,side,initialQuantity,quantity,price,brokerId,shareholderId,entryTime,peakSize,displayedQuantity, minimumExecutionQuantity
 //0       1    2    3                4        5    6        7              8        9        10                 11
-                    int peakSize = Integer.parseInt(line[8]);
-                    Order order;
-                    if (peakSize == 0) {
-                        order = new Order(
-                                Long.parseLong(line[0]),
-                                security,
-                                Side.parse(line[2]),
-                                Integer.parseInt(line[3]),
-                                Integer.parseInt(line[4]),
-                                Integer.parseInt(line[5]),
-                                broker,
-                                shareholder,
-                                LocalDateTime.parse(line[8]),
-                                Integer.parseInt(line[11]),
-                                OrderStatus.QUEUED);
-                    } else {
-                        order = new IcebergOrder(
-                                Long.parseLong(line[0]),
-                                security,
-                                Side.parse(line[2]),
-                                Integer.parseInt(line[3]),
-                                Integer.parseInt(line[4]),
-                                Integer.parseInt(line[5]),
-                                broker,
-                                shareholder,
-                                LocalDateTime.parse(line[8]),
-                                Integer.parseInt(line[9]),
-                                Integer.parseInt(line[10]),
-                                Integer.parseInt(line[11]),
-                                OrderStatus.QUEUED);
-                    }
-                    orders.addFirst(order);
-                }
-            }
-        }
-        Iterator<Order> it = orders.descendingIterator();
-        while (it.hasNext()) {
-            Order order = it.next();
-            order.getSecurity().getOrderBook().enqueue(order);
+        int peakSize = Integer.parseInt(line[9]);
+        if (peakSize == 0) {
+            return new Order(
+                    Long.parseLong(line[0]),
+                    security,
+                    Side.parse(line[2]),
+                    Integer.parseInt(line[3]),
+                    Integer.parseInt(line[4]),
+                    Integer.parseInt(line[5]),
+                    broker,
+                    shareholder,
+                    LocalDateTime.parse(line[8]),
+                    Integer.parseInt(line[11]),
+                    OrderStatus.QUEUED);
         }
-        log.info("Order Book loaded");
+        return new IcebergOrder(
+                Long.parseLong(line[0]),
+                security,
+                Side.parse(line[2]),
+                Integer.parseInt(line[3]),
+                Integer.parseInt(line[4]),
+                Integer.parseInt(line[5]),
+                broker,
+                shareholder,
+                LocalDateTime.parse(line[8]),
+                peakSize,
+                Integer.parseInt(line[10]),
+                Integer.parseInt(line[11]),
+                OrderStatus.QUEUED);
     }
 
-    private void saveBrokers() throws Exception {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(brokerCsvResource.getFile()))) {
-            writer.println("brokerId,name,credit");
-            for (Broker broker : brokerRepository.allBrokers()) {
-                StringJoiner joiner = new StringJoiner(",");
-                joiner.add(String.valueOf(broker.getBrokerId()))
-                        .add(broker.getName())
-                        .add(String.valueOf(broker.getCredit()));
-                writer.println(joiner);
-            }
-        }
+    private void saveBrokers(ForkJoinPool pool, long generation) {
+        List<Broker> brokers = new ArrayList<>();
+        brokerRepository.allBrokers().forEach(brokers::add);
+        writeCsv(brokerCsvResource, generation, "brokerId,name,credit", format(pool, brokers, broker -> getCSVString(broker) + "\n"));
         log.info("Brokers saved");
     }
 
-    private void saveShareholdersAndPositions() throws Exception {
-        try (PrintWriter shareholderWriter = new PrintWriter(new FileWriter(shareholderCsvResource.getFile()))) {
-            shareholderWriter.println("shareholderId,name");
-            try (PrintWriter positionWriter = new PrintWriter(new FileWriter(positionCsvResource.getFile()))) {
-                positionWriter.println("shareholderId,isin,positions");
-                for (Shareholder shareholder : shareholderRepository.allShareholders()) {
-                    StringJoiner joiner = new StringJoiner(",");
-                    joiner.add(String.valueOf(shareholder.getShareholderId()))
-                            .add(shareholder.getName());
-                    shareholderWriter.println(joiner);
-                    for (var entry : shareholder.getPositions().entrySet()) {
-                        StringJoiner posJoiner = new StringJoiner(",");
-                        posJoiner.add(String.valueOf(shareholder.getShareholderId()))
-                                .add(entry.getKey().getIsin())
-                                .add(String.valueOf(entry.getValue()));
-                        positionWriter.println(posJoiner);
-                    }
-                }
+    private void saveShareholdersAndPositions(ForkJoinPool pool, long generation) {
+        List<Shareholder> shareholders = new ArrayList<>();
+        shareholderRepository.allShareholders().forEach(shareholders::add);
+        CompletableFuture<Void> shareholdersSaved = CompletableFuture.runAsync(() ->
+                writeCsv(shareholderCsvResource, generation, "shareholderId,name", format(pool, shareholders, shareholder -> getCSVString(shareholder) + "\n")), pool);
+        writeCsv(positionCsvResource, generation, "shareholderId,isin,positions", format(pool, shareholders, shareholder -> {
+            StringBuilder lines = new StringBuilder();
+            for (var entry : shareholder.getPositions().entrySet()) {
+                StringJoiner posJoiner = new StringJoiner(",", "", "\n");
+                posJoiner.add(String.valueOf(shareholder.getShareholderId()))
+                        .add(entry.getKey().getIsin())
+                        .add(String.valueOf(entry.getValue()));
+                lines.append(posJoiner);
             }
-        }
+            return lines.toString();
+        }));
+        shareholdersSaved.join();
         log.info("Shareholders and Positions saved");
     }
 
-    private void saveSecuritiesAndOrderBooks() throws Exception {
-        try (PrintWriter securityWriter = new PrintWriter(new FileWriter(securityCsvResource.getFile()))) {
-            securityWriter.println("isin,tickSize,lotSize");
-            try (PrintWriter orderBookWriter = new PrintWriter(new FileWriter(orderBookCsvResource.getFile()))) {
-                orderBookWriter.println("orderId,isin,side,quantity,price,brokerId,shareholderId,entryTime,status,peakSize,displayedQuantity");
-                for (Security security : securityRepository.allSecurities()) {
-                    StringJoiner joiner = new StringJoiner(",");
-                    joiner.add(security.getIsin())
-                            .add(String.valueOf(security.getTickSize()))
-                            .add(String.valueOf(security.getLotSize()));
-                    securityWriter.println(joiner);
-                    for (Order order : security.getOrderBook().getBuyQueue())
-                        orderBookWriter.println(getCSVString(order));
-                    for (Order order : security.getOrderBook().getSellQueue())
-                        orderBookWriter.println(getCSVString(order));
-                }
-            }
-        }
+    private void saveSecuritiesAndOrderBooks(ForkJoinPool pool, long generation) {
+        List<Security> securities = new ArrayList<>();
+        securityRepository.allSecurities().forEach(securities::add);
+        CompletableFuture<Void> securitiesSaved = CompletableFuture.runAsync(() ->
+                writeCsv(securityCsvResource, generation, "isin,tickSize,lotSize,lowestPrice,highestPrice", format(pool, securities, security -> getCSVString(security) + "\n")), pool);
+        writeCsv(orderBookCsvResource, generation, "orderId,isin,side,initialQuantity,quantity,price,brokerId,shareholderId,entryTime,peakSize,displayedQuantity,minimumExecutionQuantity",
+                format(pool, securities, security -> {
+                    StringBuilder lines = new StringBuilder();
+                    for (Side side : Side.values())
+                        security.getOrderBook().forEachOrder(side, order -> lines.append(getCSVString(order)).append('\n'));
+                    return lines.toString();
+                }));
+        securitiesSaved.join();
         log.info("Securities and OrderBook saved");
     }
 
-    private static String getCSVString(Order order) {
+    private static void writeCsv(Resource resource, long generation, String header, List<String> chunks) {
+        try (FileChannel channel = FileChannel.open(pending(resource, generation), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+            write(channel, buffer, header + "\n");
+            for (String chunk : chunks)
+                write(channel, buffer, chunk);
+            drain(channel, buffer);
+            channel.force(true);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not write " + resource.getFilename(), ex);
+        }
+    }
+
+    private static Path pending(Resource resource, long generation) throws IOException {
+        Path file = resource.getFile().toPath();
+        return file.resolveSibling(file.getFileName() + "." + generation);
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, String chunk) throws IOException {
+        byte[] bytes = chunk.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > buffer.remaining())
+            drain(channel, buffer);
+        if (bytes.length > buffer.capacity()) {
+            ByteBuffer large = ByteBuffer.wrap(bytes);
+            while (large.hasRemaining())
+                channel.write(large);
+        } else {
+            buffer.put(bytes);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    static String getCSVString(Broker broker) {
+        StringJoiner joiner = new StringJoiner(",");
+        joiner.add(String.valueOf(broker.getBrokerId()))
+                .add(broker.getName())
+                .add(String.valueOf(broker.getCredit()));
+        return joiner.toString();
+    }
+
+    static String getCSVString(Shareholder shareholder) {
+        StringJoiner joiner = new StringJoiner(",");
+        joiner.add(String.valueOf(shareholder.getShareholderId()))
+                .add(shareholder.getName());
+        return joiner.toString();
+    }
+
+    static String getCSVString(Security security) {
+        StringJoiner joiner = new StringJoiner(",");
+        joiner.add(security.getIsin())
+                .add(String.valueOf(security.getTickSize()))
+                .add(String.valueOf(security.getLotSize()));
+        PriceBand priceBand = security.getOrderBook().getPriceBand();
+        if (priceBand != null) {
+            joiner.add(String.valueOf(priceBand.lowestPrice()))
+                    .add(String.valueOf(priceBand.highestPrice()));
+        } else {
+            joiner.add("").add("");
+        }
+        return joiner.toString();
+    }
+
+    static String getCSVString(Order order) {
         StringJoiner orderJoiner = new StringJoiner(",");
         orderJoiner.add(String.valueOf(order.getOrderId()))
                 .add(order.getSecurity().getIsin())
                 .add(order.getSide().toString())
+                .add(String.valueOf(order.getInitialQuantity()))
                 .add(String.valueOf(order.getQuantity()))
                 .add(String.valueOf(order.getPrice()))
                 .add(String.valueOf(order.getBroker().getBrokerId()))
@@ -255,6 +437,7 @@ public class DataLoader {
         } else {
             orderJoiner.add("0").add("0");
         }
+        orderJoiner.add(String.valueOf(order.getMinimumExecutionQuantity()));
         return orderJoiner.toString();
     }
 
@@ -0,0 +1,301 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.messaging.BinaryCodec;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.request.BatchOrderRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+@Component
+public class RequestJournal implements SmartLifecycle {
+    private static final int HEADER_SIZE = 8;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final Consumer<Event> DISCARD = event -> {};
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final OrderHandler orderHandler;
+    private final BinaryCodec codec = new BinaryCodec();
+    private final CRC32C crc = new CRC32C();
+    @Getter
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final long syncIntervalMillis;
+    private long segmentIndex;
+    private long replayPosition;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int syncedPosition;
+    private long appendedRequests;
+    private long replayedRequests;
+    private Thread flusher;
+    private volatile boolean running;
+
+    public RequestJournal(OrderHandler orderHandler,
+                          @Value("${journalEnabled:false}") boolean enabled,
+                          @Value("${journalDirectory:journal}") String directory,
+                          @Value("${journalSegmentSize:67108864}") int segmentSize,
+                          @Value("${journalSyncIntervalMillis:10}") long syncIntervalMillis) {
+        this.orderHandler = orderHandler;
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.segmentSize = segmentSize;
+        this.syncIntervalMillis = syncIntervalMillis;
+    }
+
+    public synchronized void append(Object request) {
+        if (!running) {
+            if (enabled)
+                throw new IllegalStateException("The request journal is not running");
+            return;
+        }
+        int size = codec.sizeOf(request);
+        if (HEADER_SIZE + size + HEADER_SIZE > segmentSize)
+            throw new IllegalArgumentException("Request of " + size + " bytes does not fit in a journal segment");
+        if (segment.remaining() < HEADER_SIZE + size + HEADER_SIZE)
+            roll();
+        int start = segment.position();
+        segment.position(start + HEADER_SIZE);
+        codec.encode(request, segment);
+        crc.reset();
+        crc.update(segment.slice(start + HEADER_SIZE, size));
+        segment.putInt(start + 4, (int) crc.getValue());
+        segment.putInt(start, size);
+        appendedRequests++;
+        if (syncIntervalMillis <= 0)
+            sync();
+    }
+
+    public synchronized long getAppendedRequests() {
+        return appendedRequests;
+    }
+
+    public synchronized long getReplayedRequests() {
+        return replayedRequests;
+    }
+
+    // Every journaled request so far lives in a segment below this position, so state saved now covers it.
+    public synchronized long getPosition() {
+        return enabled ? segmentIndex + 1 : 0;
+    }
+
+    // Segments below the position are already reflected in the loaded state; replay skips them and new
+    // segments are numbered past them.
+    public synchronized void replayFrom(long position) {
+        replayPosition = position;
+        segmentIndex = Math.max(segmentIndex, position);
+    }
+
+    public synchronized void truncate(long position) {
+        if (!enabled)
+            return;
+        try {
+            for (Path path : segments())
+                if (indexOf(path) < position)
+                    Files.delete(path);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not truncate journal segments", ex);
+        }
+    }
+
+    public synchronized void reset() {
+        if (!enabled)
+            return;
+        closeSegment();
+        deleteSegments();
+        segmentIndex = replayPosition;
+        if (running)
+            openSegment();
+    }
+
+    private void replay() throws IOException {
+        for (Path path : segments()) {
+            if (indexOf(path) < replayPosition)
+                continue;
+            try (FileChannel readChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+                while (buffer.remaining() >= HEADER_SIZE) {
+                    int start = buffer.position();
+                    int size = buffer.getInt(start);
+                    if (size <= 0 || size > buffer.remaining() - HEADER_SIZE)
+                        break;
+                    crc.reset();
+                    crc.update(buffer.slice(start + HEADER_SIZE, size));
+                    if ((int) crc.getValue() != buffer.getInt(start + 4)) {
+                        log.warning("Journal record at " + path + ":" + start + " is corrupt; replay stops there");
+                        break;
+                    }
+                    ByteBuffer record = buffer.slice(start + HEADER_SIZE, size);
+                    buffer.position(start + HEADER_SIZE + size);
+                    replay(codec.decode(record));
+                }
+            }
+            segmentIndex = Math.max(segmentIndex, indexOf(path) + 1);
+        }
+    }
+
+    private void replay(Object request) {
+        try {
+            if (request instanceof EnterOrderRq enterOrderRq)
+                orderHandler.handleEnterOrder(enterOrderRq, orderHandler.validateEnterOrderRq(enterOrderRq), DISCARD);
+            else if (request instanceof DeleteOrderRq deleteOrderRq)
+                orderHandler.handleDeleteOrder(deleteOrderRq, orderHandler.validateDeleteOrderRq(deleteOrderRq), DISCARD);
+            else if (request instanceof BatchOrderRq batchOrderRq)
+                orderHandler.handleBatchOrder(batchOrderRq, orderHandler.validateBatchOrderRq(batchOrderRq), DISCARD);
+            replayedRequests++;
+        } catch (RuntimeException ex) {
+            log.severe("Could not replay journaled request " + request + ": " + ex);
+        }
+    }
+
+    private void roll() {
+        closeSegment();
+        segmentIndex++;
+        openSegment();
+    }
+
+    private void openSegment() {
+        try {
+            channel = FileChannel.open(directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, segmentIndex, SEGMENT_SUFFIX)),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            syncedPosition = 0;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not open journal segment " + segmentIndex, ex);
+        }
+    }
+
+    private void closeSegment() {
+        if (channel == null)
+            return;
+        segment.force();
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            log.warning("Could not close journal segment " + segmentIndex + ": " + ex);
+        }
+        channel = null;
+        segment = null;
+    }
+
+    private void sync() {
+        MappedByteBuffer dirty;
+        int from;
+        int to;
+        synchronized (this) {
+            if (segment == null || segment.position() == syncedPosition)
+                return;
+            dirty = segment;
+            from = syncedPosition;
+            to = segment.position();
+            syncedPosition = to;
+        }
+        dirty.force(from, to - from);
+    }
+
+    private void flush() {
+        while (running) {
+            try {
+                Thread.sleep(syncIntervalMillis);
+            } catch (InterruptedException ex) {
+                return;
+            }
+            sync();
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        if (!Files.isDirectory(directory))
+            return List.of();
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private void deleteSegments() {
+        try {
+            for (Path path : segments())
+                Files.delete(path);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not delete journal segments", ex);
+        }
+    }
+
+    private static long indexOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled || running)
+            return;
+        try {
+            Files.createDirectories(directory);
+            replay();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not replay the request journal", ex);
+        }
+        log.info("Replayed " + replayedRequests + " journaled requests");
+        openSegment();
+        running = true;
+        if (syncIntervalMillis > 0) {
+            flusher = new Thread(this::flush, "journal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (!running)
+            return;
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+            try {
+                flusher.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            flusher = null;
+        }
+        synchronized (this) {
+            closeSegment();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Below the sequencer and the shards, so it starts before and stops after anything that dispatches requests.
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 1280;
+    }
+}
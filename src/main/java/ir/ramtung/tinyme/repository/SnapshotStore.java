@@ -0,0 +1,317 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.messaging.BinaryCodec;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+@Component
+public class SnapshotStore {
+    private static final int MAGIC = 0x544d5353;
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final BrokerRepository brokerRepository;
+    private final ShareholderRepository shareholderRepository;
+    private final SecurityRepository securityRepository;
+    @Getter
+    private final boolean enabled;
+    private final Path file;
+    private final int maxDenseLevels;
+
+    public SnapshotStore(BrokerRepository brokerRepository,
+                         ShareholderRepository shareholderRepository,
+                         SecurityRepository securityRepository,
+                         @Value("${snapshotEnabled:false}") boolean enabled,
+                         @Value("${snapshotFile:tinyme.snapshot}") String file,
+                         @Value("${denseLadderMaxLevels:65536}") int maxDenseLevels) {
+        this.brokerRepository = brokerRepository;
+        this.shareholderRepository = shareholderRepository;
+        this.securityRepository = securityRepository;
+        this.enabled = enabled;
+        this.file = Path.of(file);
+        this.maxDenseLevels = maxDenseLevels;
+    }
+
+    public boolean exists() {
+        return enabled && Files.isRegularFile(file);
+    }
+
+    public void save(long journalPosition) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        if (file.getParent() != null)
+            Files.createDirectories(file.getParent());
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Writer writer = new Writer(channel);
+            writer.ensure(16);
+            writer.buffer.putInt(MAGIC).putInt(VERSION).putLong(journalPosition);
+            writeBrokers(writer);
+            writeShareholders(writer);
+            Map<Security, Integer> securityIndex = writeSecurities(writer);
+            writePositions(writer, securityIndex);
+            writeOrders(writer, securityIndex);
+            writer.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Snapshot saved to " + file);
+    }
+
+    // Returns the journal position the snapshot was saved at; snapshots from before it was recorded report 0.
+    public long load() throws IOException {
+        long journalPosition;
+        brokerRepository.clear();
+        shareholderRepository.clear();
+        securityRepository.clear();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int magic = buffer.getInt();
+            int version = buffer.getInt();
+            if (magic != MAGIC || version < 1 || version > VERSION)
+                throw new IOException("Unsupported snapshot format in " + file);
+            journalPosition = version >= 2 ? buffer.getLong() : 0;
+            readBrokers(buffer);
+            readShareholders(buffer);
+            List<Security> securities = readSecurities(buffer);
+            readPositions(buffer, securities);
+            readOrders(buffer, securities);
+        }
+        log.info("Snapshot loaded from " + file);
+        return journalPosition;
+    }
+
+    private void writeBrokers(Writer writer) throws IOException {
+        List<Broker> brokers = new ArrayList<>();
+        brokerRepository.allBrokers().forEach(brokers::add);
+        writer.ensure(4);
+        writer.buffer.putInt(brokers.size());
+        for (Broker broker : brokers) {
+            writer.ensure(16);
+            writer.buffer.putLong(broker.getBrokerId()).putLong(broker.getCredit());
+            writer.putString(broker.getName());
+        }
+    }
+
+    private void readBrokers(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            long brokerId = buffer.getLong();
+            long credit = buffer.getLong();
+            brokerRepository.addBroker(Broker.builder().brokerId(brokerId).credit(credit).name(getString(buffer)).build());
+        }
+    }
+
+    private void writeShareholders(Writer writer) throws IOException {
+        List<Shareholder> shareholders = new ArrayList<>();
+        shareholderRepository.allShareholders().forEach(shareholders::add);
+        writer.ensure(4);
+        writer.buffer.putInt(shareholders.size());
+        for (Shareholder shareholder : shareholders) {
+            writer.ensure(8);
+            writer.buffer.putLong(shareholder.getShareholderId());
+            writer.putString(shareholder.getName());
+        }
+    }
+
+    private void readShareholders(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            long shareholderId = buffer.getLong();
+            shareholderRepository.addShareholder(Shareholder.builder().shareholderId(shareholderId).name(getString(buffer)).build());
+        }
+    }
+
+    private Map<Security, Integer> writeSecurities(Writer writer) throws IOException {
+        List<Security> securities = new ArrayList<>();
+        securityRepository.allSecurities().forEach(securities::add);
+        Map<Security, Integer> securityIndex = new HashMap<>();
+        writer.ensure(4);
+        writer.buffer.putInt(securities.size());
+        for (Security security : securities) {
+            securityIndex.put(security, securityIndex.size());
+            writer.putString(security.getIsin());
+            PriceBand priceBand = security.getOrderBook().getPriceBand();
+            writer.ensure(17);
+            writer.buffer.putInt(security.getTickSize())
+                    .putInt(security.getLotSize())
+                    .put(priceBand == null ? (byte) 0 : (byte) 1)
+                    .putInt(priceBand == null ? 0 : priceBand.lowestPrice())
+                    .putInt(priceBand == null ? 0 : priceBand.highestPrice());
+        }
+        return securityIndex;
+    }
+
+    private List<Security> readSecurities(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        List<Security> securities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String isin = getString(buffer);
+            int tickSize = buffer.getInt();
+            int lotSize = buffer.getInt();
+            boolean hasBand = buffer.get() != 0;
+            int lowestPrice = buffer.getInt();
+            int highestPrice = buffer.getInt();
+            Security security = Security.builder()
+                    .isin(isin)
+                    .tickSize(tickSize)
+                    .lotSize(lotSize)
+                    .orderBook(hasBand ? new OrderBook(new PriceBand(lowestPrice, highestPrice), tickSize, maxDenseLevels) : new OrderBook())
+                    .build();
+            securityRepository.addSecurity(security);
+            securities.add(security);
+        }
+        return securities;
+    }
+
+    private void writePositions(Writer writer, Map<Security, Integer> securityIndex) throws IOException {
+        int count = 0;
+        for (Shareholder shareholder : shareholderRepository.allShareholders())
+            count += shareholder.getPositions().size();
+        writer.ensure(4);
+        writer.buffer.putInt(count);
+        for (Shareholder shareholder : shareholderRepository.allShareholders()) {
+            for (Map.Entry<Security, Integer> position : shareholder.getPositions().entrySet()) {
+                writer.ensure(16);
+                writer.buffer.putLong(shareholder.getShareholderId())
+                        .putInt(securityIndex.get(position.getKey()))
+                        .putInt(position.getValue());
+            }
+        }
+    }
+
+    private void readPositions(ByteBuffer buffer, List<Security> securities) {
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            Shareholder shareholder = shareholderRepository.findShareholderById(buffer.getLong());
+            Security security = securities.get(buffer.getInt());
+            shareholder.incPosition(security, buffer.getInt());
+        }
+    }
+
+    private void writeOrders(Writer writer, Map<Security, Integer> securityIndex) throws IOException {
+        int count = 0;
+        for (Security security : securityIndex.keySet()) {
+            OrderBook orderBook = security.getOrderBook();
+            for (Side side : Side.values())
+                for (PriceLevel level = orderBook.getBestLevel(side); level != null; level = orderBook.getNextLevel(side, level))
+                    for (Order ignored : level)
+                        count++;
+        }
+        writer.ensure(4);
+        writer.buffer.putInt(count);
+        for (Map.Entry<Security, Integer> entry : securityIndex.entrySet()) {
+            OrderBook orderBook = entry.getKey().getOrderBook();
+            for (Side side : Side.values())
+                for (PriceLevel level = orderBook.getBestLevel(side); level != null; level = orderBook.getNextLevel(side, level))
+                    for (Order order : level)
+                        writeOrder(writer, entry.getValue(), order);
+        }
+    }
+
+    private void writeOrder(Writer writer, int securityIndex, Order order) throws IOException {
+        writer.ensure(63);
+        writer.buffer.putInt(securityIndex)
+                .putLong(order.getOrderId())
+                .put((byte) order.getSide().ordinal())
+                .putInt(order.getInitialQuantity())
+                .putInt(order.getQuantity())
+                .putInt(order.getPrice())
+                .putLong(order.getBroker().getBrokerId())
+                .putLong(order.getShareholder().getShareholderId())
+                .putLong(BinaryCodec.toEpochNanos(order.getEntryTime()))
+                .putInt(order.getMinimumExecutionQuantity())
+                .put((byte) order.getStatus().ordinal());
+        if (order instanceof IcebergOrder icebergOrder)
+            writer.buffer.putInt(icebergOrder.getPeakSize()).putInt(icebergOrder.getDisplayedQuantity());
+        else
+            writer.buffer.putInt(0).putInt(0);
+    }
+
+    private void readOrders(ByteBuffer buffer, List<Security> securities) {
+        int count = buffer.getInt();
+        Map<Security, List<Order>> ordersBySecurity = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            Security security = securities.get(buffer.getInt());
+            long orderId = buffer.getLong();
+            Side side = Side.values()[buffer.get()];
+            int initialQuantity = buffer.getInt();
+            int quantity = buffer.getInt();
+            int price = buffer.getInt();
+            Broker broker = brokerRepository.findBrokerById(buffer.getLong());
+            Shareholder shareholder = shareholderRepository.findShareholderById(buffer.getLong());
+            LocalDateTime entryTime = BinaryCodec.fromEpochNanos(buffer.getLong());
+            int minimumExecutionQuantity = buffer.getInt();
+            OrderStatus status = OrderStatus.values()[buffer.get()];
+            int peakSize = buffer.getInt();
+            int displayedQuantity = buffer.getInt();
+            Order order;
+            if (peakSize == 0)
+                order = new Order(orderId, security, side, initialQuantity, quantity, price, broker, shareholder, entryTime, minimumExecutionQuantity, status);
+            else
+                order = new IcebergOrder(orderId, security, side, initialQuantity, quantity, price, broker, shareholder, entryTime, peakSize, displayedQuantity, minimumExecutionQuantity, status);
+            ordersBySecurity.computeIfAbsent(security, key -> new ArrayList<>()).add(order);
+        }
+        ordersBySecurity.forEach((security, orders) -> security.getOrderBook().bulkLoad(orders));
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class Writer {
+        final FileChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes)
+                flush();
+        }
+
+        void putString(String value) throws IOException {
+            if (value == null) {
+                ensure(4);
+                buffer.putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (4 + bytes.length > BUFFER_SIZE)
+                throw new IOException("String of " + bytes.length + " bytes is too long for a snapshot");
+            ensure(4 + bytes.length);
+            buffer.putInt(bytes.length).put(bytes);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package ir.ramtung.tinyme.domain;
+
+import ir.ramtung.tinyme.domain.service.LatencyHistogram;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LatencyHistogramTest {
+    @Test
+    void small_values_are_exact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        IntStream.rangeClosed(1, 10).forEach(histogram::record);
+        assertThat(histogram.getCount()).isEqualTo(10);
+        assertThat(histogram.getMean()).isEqualTo(5.5);
+        assertThat(histogram.getP50()).isEqualTo(5);
+        assertThat(histogram.getP99()).isEqualTo(10);
+        assertThat(histogram.getMax()).isEqualTo(10);
+    }
+
+    @Test
+    void percentiles_stay_within_bucket_precision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1_000; value <= 1_000_000; value += 1_000)
+            histogram.record(value);
+        assertThat((double) histogram.getP50()).isCloseTo(500_000, within(500_000 / 16.0));
+        assertThat((double) histogram.getP99()).isCloseTo(990_000, within(990_000 / 16.0));
+        assertThat(histogram.getP999()).isLessThanOrEqualTo(1_000_000);
+        assertThat(histogram.getMax()).isEqualTo(1_000_000);
+        assertThat(histogram.percentile(100)).isEqualTo(1_000_000);
+    }
+
+    @Test
+    void concurrent_recording_loses_no_samples() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++)
+            executor.execute(() -> {
+                for (int i = 0; i < 100_000; i++)
+                    histogram.record(i);
+            });
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(histogram.getCount()).isEqualTo(400_000);
+        assertThat(histogram.getMax()).isEqualTo(99_999);
+        assertThat(histogram.percentile(100)).isEqualTo(99_999);
+    }
+}
@@ -2,6 +2,7 @@ package ir.ramtung.tinyme.domain;
 
 import ir.ramtung.tinyme.config.MockedJMSTestConfig;
 import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.MatchPreview;
 import ir.ramtung.tinyme.domain.service.MatchResult;
 import ir.ramtung.tinyme.domain.service.Matcher;
 import ir.ramtung.tinyme.domain.service.MatchingOutcome;
@@ -152,4 +153,40 @@ public class MatcherTest {
         assertThat(security.getOrderBook().getBuyQueue().get(0).getQuantity()).isEqualTo(20);
 
     }
+
+    @Test
+    void preview_predicts_the_trades_of_a_sweep_without_changing_the_book() {
+        Order order = new Order(11, security, BUY, 2000, 15810, broker, shareholder);
+        MatchPreview preview = matcher.preview(order);
+        assertThat(preview.tradedQuantity()).isEqualTo(1435);
+        assertThat(preview.tradedValue()).isEqualTo(350L * 15800 + 1085L * 15810);
+        assertThat(preview.tradedValueWithOwnBroker()).isEqualTo(preview.tradedValue());
+        assertThat(orderBook.getSellQueue()).isEqualTo(orders.subList(5, 10));
+
+        MatchResult result = matcher.match(order);
+        assertThat(result.trades().stream().mapToInt(Trade::getQuantity).sum()).isEqualTo(preview.tradedQuantity());
+        assertThat(result.trades().stream().mapToLong(Trade::getTradedValue).sum()).isEqualTo(preview.tradedValue());
+    }
+
+    @Test
+    void preview_follows_iceberg_replenishment() {
+        security = Security.builder().build();
+        Broker otherBroker = Broker.builder().brokerId(2).build();
+        orderBook = security.getOrderBook();
+        orders = Arrays.asList(
+                new IcebergOrder(1, security, BUY, 450, 15450, broker, shareholder, 200),
+                new Order(2, security, BUY, 70, 15450, otherBroker, shareholder),
+                new Order(3, security, BUY, 1000, 15400, broker, shareholder)
+        );
+        orders.forEach(order -> orderBook.enqueue(order));
+        Order order = new Order(4, security, Side.SELL, 600, 15450, broker, shareholder);
+
+        MatchPreview preview = matcher.preview(order);
+        assertThat(preview.tradedQuantity()).isEqualTo(520);
+        assertThat(preview.tradedValueWithOwnBroker()).isEqualTo(450L * 15450);
+        assertThat(preview.remainingQuantity(order)).isEqualTo(80);
+
+        MatchResult result = matcher.match(order);
+        assertThat(result.remainder().getQuantity()).isEqualTo(80);
+    }
 }
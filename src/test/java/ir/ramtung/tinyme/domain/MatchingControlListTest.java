@@ -0,0 +1,83 @@
+package ir.ramtung.tinyme.domain;
+
+import ir.ramtung.tinyme.config.MockedJMSTestConfig;
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.*;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {"controlStatisticsEnabled=true", "adaptiveControlOrderingEnabled=true", "controlReorderInterval=1"})
+@Import(MockedJMSTestConfig.class)
+@DirtiesContext
+public class MatchingControlListTest {
+    @Autowired
+    OrderHandler orderHandler;
+    @Autowired
+    MatchingControlList controls;
+    @Autowired
+    SecurityRepository securityRepository;
+    @Autowired
+    BrokerRepository brokerRepository;
+    @Autowired
+    ShareholderRepository shareholderRepository;
+    private Shareholder shareholder;
+
+    @BeforeEach
+    void setup() {
+        securityRepository.clear();
+        brokerRepository.clear();
+        shareholderRepository.clear();
+        Security security = Security.builder().isin("ABC").build();
+        securityRepository.addSecurity(security);
+        shareholder = Shareholder.builder().build();
+        shareholder.incPosition(security, 100_000);
+        shareholderRepository.addShareholder(shareholder);
+        brokerRepository.addBroker(Broker.builder().brokerId(1).build());
+    }
+
+    @Test
+    void invocations_nanos_and_rejections_are_recorded_per_control_and_hook() {
+        ControlStatistics ownership = controls.getStatistics(OwnershipControl.class);
+        ControlStatistics minimumQuantity = controls.getStatistics(MinimumExecutionQuantityControl.class);
+        long startChecks = ownership.getInvocations(MatchingHook.CAN_START_MATCHING);
+        long previewRejections = minimumQuantity.getRejections(MatchingHook.CAN_ACCEPT_PREVIEW);
+
+        orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(1, "ABC", 200, LocalDateTime.now(), Side.SELL, 300, 15450, 1, shareholder.getShareholderId(), 0, 100));
+
+        assertThat(ownership.getInvocations(MatchingHook.CAN_START_MATCHING)).isEqualTo(startChecks + 1);
+        assertThat(ownership.getRejections(MatchingHook.CAN_START_MATCHING)).isZero();
+        assertThat(ownership.getNanos(MatchingHook.CAN_START_MATCHING)).isPositive();
+        assertThat(minimumQuantity.getRejections(MatchingHook.CAN_ACCEPT_PREVIEW)).isEqualTo(previewRejections + 1);
+        assertThat(controls.getControlStatistics()).anyMatch(line -> line.startsWith("MinimumExecutionQuantityControl"));
+    }
+
+    @Test
+    void the_most_selective_control_is_moved_to_the_front() {
+        orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(1, "ABC", 200, LocalDateTime.now(), Side.SELL, 300, 15450, 1, shareholder.getShareholderId(), 0, 100));
+
+        assertThat(controls.getOrder(MatchingHook.CAN_ACCEPT_PREVIEW).get(0)).isInstanceOf(MinimumExecutionQuantityControl.class);
+        assertThat(controls.getControlOrder().get("can_accept_preview")).startsWith("MinimumExecutionQuantityControl");
+    }
+
+    @Test
+    void hooks_are_dispatched_only_to_controls_that_override_them() {
+        assertThat(MatchingHook.TRADE_ACCEPTED.isImplementedBy(new CreditControl())).isTrue();
+        assertThat(MatchingHook.TRADE_ACCEPTED.isImplementedBy(new OwnershipControl())).isFalse();
+        assertThat(controls.getOrder(MatchingHook.MATCHING_STARTED)).isEmpty();
+        assertThat(controls.getOrder(MatchingHook.TRADE_ACCEPTED)).singleElement().isInstanceOf(CreditControl.class);
+        assertThat(controls.getOrder(MatchingHook.CAN_START_MATCHING)).singleElement().isInstanceOf(OwnershipControl.class);
+        assertThat(controls.getStatistics(OwnershipControl.class).getInvocations(MatchingHook.CAN_ACCEPT_PREVIEW)).isZero();
+    }
+}
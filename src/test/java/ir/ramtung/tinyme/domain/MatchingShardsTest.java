@@ -0,0 +1,243 @@
+package ir.ramtung.tinyme.domain;
+
+import ir.ramtung.tinyme.domain.entity.Broker;
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.domain.service.MatchingShards;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.Message;
+import ir.ramtung.tinyme.messaging.event.BatchEvent;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.event.OrderAcceptedEvent;
+import ir.ramtung.tinyme.messaging.event.OrderRejectedEvent;
+import ir.ramtung.tinyme.messaging.request.BatchOrderEntry;
+import ir.ramtung.tinyme.messaging.request.BatchOrderRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.RequestJournal;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.stubbing.Answer;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class MatchingShardsTest {
+    @Test
+    void handles_requests_inline_when_not_sharded() {
+        OrderHandler orderHandler = mock(OrderHandler.class);
+        MatchingShards matchingShards = new MatchingShards(orderHandler, mock(EventPublisher.class), mock(RequestJournal.class), 0);
+        EnterOrderRq rq = EnterOrderRq.createNewOrderRq(1, "ABC", 1, LocalDateTime.now(), Side.BUY, 10, 100, 1, 1, 0, 0);
+
+        matchingShards.enterOrder(rq);
+
+        verify(orderHandler).handleEnterOrder(rq);
+    }
+
+    @Test
+    void keeps_the_order_of_requests_of_each_security() {
+        OrderHandler orderHandler = mock(OrderHandler.class);
+        Map<String, String> threadByIsin = new ConcurrentHashMap<>();
+        doAnswer(invocation -> {
+            EnterOrderRq rq = invocation.getArgument(0);
+            String previous = threadByIsin.putIfAbsent(rq.getSecurityIsin(), Thread.currentThread().getName());
+            assertThat(previous == null || previous.equals(Thread.currentThread().getName())).isTrue();
+            return null;
+        }).when(orderHandler).handleEnterOrder(any());
+        MatchingShards matchingShards = new MatchingShards(orderHandler, mock(EventPublisher.class), mock(RequestJournal.class), 4);
+        matchingShards.start();
+        List<String> isins = List.of("ABC", "DEF", "GHI");
+        List<EnterOrderRq> requests = IntStream.range(0, 300)
+                .mapToObj(i -> EnterOrderRq.createNewOrderRq(i, isins.get(i % 3), i, LocalDateTime.now(), Side.BUY, 10, 100, i % 5, 1, 0, 0))
+                .toList();
+
+        DeleteOrderRq deleteOrderRq = new DeleteOrderRq(300, "ABC", Side.BUY, 3);
+        requests.forEach(matchingShards::enterOrder);
+        matchingShards.deleteOrder(deleteOrderRq);
+        matchingShards.stop();
+
+        InOrder inOrder = inOrder(orderHandler);
+        for (EnterOrderRq rq : requests.stream().filter(rq -> rq.getSecurityIsin().equals("ABC")).toList())
+            inOrder.verify(orderHandler).handleEnterOrder(rq);
+        inOrder.verify(orderHandler).handleDeleteOrder(deleteOrderRq);
+        verify(orderHandler, times(300)).handleEnterOrder(any());
+        assertThat(threadByIsin).hasSize(3);
+    }
+
+    @Test
+    void publishes_one_batch_event_in_entry_order_across_shards() {
+        OrderHandler orderHandler = mock(OrderHandler.class);
+        EventPublisher eventPublisher = mock(EventPublisher.class);
+        List<String> isins = List.of("ABC", "DEF", "GHI", "JKL");
+        BatchOrderRq batchOrderRq = new BatchOrderRq(1, IntStream.range(0, 40)
+                .mapToObj(i -> BatchOrderEntry.of(EnterOrderRq.createNewOrderRq(1, isins.get(i % 4), i + 1, LocalDateTime.now(), Side.BUY, 10, 100, i % 3, 1, 0, 0)))
+                .toList());
+        when(orderHandler.validateBatchOrderRq(batchOrderRq)).thenReturn(IntStream.range(0, 40).mapToObj(i -> List.<String>of()).toList());
+        doAnswer(invocation -> {
+            int index = invocation.getArgument(1);
+            Consumer<Event> publisher = invocation.getArgument(3);
+            publisher.accept(new OrderAcceptedEvent(1, index + 1));
+            return null;
+        }).when(orderHandler).handleBatchEntry(eq(batchOrderRq), anyInt(), any(), any());
+        MatchingShards matchingShards = new MatchingShards(orderHandler, eventPublisher, mock(RequestJournal.class), 4);
+        matchingShards.start();
+
+        matchingShards.batchOrder(batchOrderRq);
+        matchingShards.stop();
+
+        verify(eventPublisher).publish(new BatchEvent(1, IntStream.range(0, 40).mapToObj(i -> (Event) new OrderAcceptedEvent(1, i + 1)).toList()));
+        verify(orderHandler, never()).handleBatchOrder(any());
+    }
+
+    @Test
+    void requests_of_different_shards_reaching_the_same_broker_do_not_overlap() throws InterruptedException {
+        OrderHandler orderHandler = mock(OrderHandler.class);
+        EnterOrderRq reachesBroker2 = EnterOrderRq.createNewOrderRq(1, "ABC", 1, LocalDateTime.now(), Side.SELL, 10, 100, 1, 1, 0, 0);
+        EnterOrderRq ofBroker2 = EnterOrderRq.createNewOrderRq(2, "DEF", 2, LocalDateTime.now(), Side.BUY, 10, 100, 2, 1, 0, 0);
+        doAnswer(invocation -> {
+            if (invocation.getArgument(0) == reachesBroker2)
+                invocation.<Consumer<Broker>>getArgument(1).accept(Broker.builder().brokerId(2).build());
+            return null;
+        }).when(orderHandler).forEachBrokerTouchedBy(any(EnterOrderRq.class), any());
+        List<String> steps = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch started = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            EnterOrderRq rq = invocation.getArgument(0);
+            steps.add("start " + rq.getRequestId());
+            started.countDown();
+            Thread.sleep(rq == reachesBroker2 ? 100 : 0);
+            steps.add("end " + rq.getRequestId());
+            return null;
+        }).when(orderHandler).handleEnterOrder(any());
+        MatchingShards matchingShards = new MatchingShards(orderHandler, mock(EventPublisher.class), mock(RequestJournal.class), 2);
+        matchingShards.start();
+        assertThat(Math.floorMod("ABC".hashCode(), 2)).isNotEqualTo(Math.floorMod("DEF".hashCode(), 2));
+
+        matchingShards.enterOrder(reachesBroker2);
+        started.await();
+        matchingShards.enterOrder(ofBroker2);
+        matchingShards.stop();
+
+        assertThat(steps).containsExactly("start 1", "end 1", "start 2", "end 2");
+    }
+
+    @Test
+    void an_empty_batch_entry_is_handled_with_its_validation_errors_and_the_batch_event_is_published() {
+        OrderHandler orderHandler = mock(OrderHandler.class);
+        EventPublisher eventPublisher = mock(EventPublisher.class);
+        BatchOrderRq batchOrderRq = new BatchOrderRq(1, List.of(
+                BatchOrderEntry.of(EnterOrderRq.createNewOrderRq(1, "ABC", 1, LocalDateTime.now(), Side.BUY, 10, 100, 1, 1, 0, 0)),
+                new BatchOrderEntry(),
+                BatchOrderEntry.of(new DeleteOrderRq(1, "DEF", Side.BUY, 2))));
+        List<List<String>> validationErrors = List.of(List.of(), List.of(Message.INVALID_BATCH_ENTRY), List.of());
+        when(orderHandler.validateBatchOrderRq(batchOrderRq)).thenReturn(validationErrors);
+        doAnswer(invocation -> {
+            int index = invocation.getArgument(1);
+            List<String> errors = invocation.getArgument(2);
+            Consumer<Event> publisher = invocation.getArgument(3);
+            publisher.accept(errors.isEmpty() ? new OrderAcceptedEvent(1, index + 1) : new OrderRejectedEvent(1, 0, errors));
+            return null;
+        }).when(orderHandler).handleBatchEntry(eq(batchOrderRq), anyInt(), any(), any());
+        MatchingShards matchingShards = new MatchingShards(orderHandler, eventPublisher, mock(RequestJournal.class), 2);
+        matchingShards.start();
+
+        matchingShards.batchOrder(batchOrderRq);
+        matchingShards.stop();
+
+        verify(orderHandler).handleBatchEntry(eq(batchOrderRq), eq(1), eq(validationErrors.get(1)), any());
+        verify(eventPublisher).publish(new BatchEvent(1, List.of(
+                new OrderAcceptedEvent(1, 1),
+                new OrderRejectedEvent(1, 0, List.of(Message.INVALID_BATCH_ENTRY)),
+                new OrderAcceptedEvent(1, 3))));
+    }
+
+    @Test
+    void requests_from_concurrent_listeners_never_overlap_when_not_sharded() throws InterruptedException {
+        OrderHandler orderHandler = mock(OrderHandler.class);
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        Answer<Void> handle = invocation -> {
+            if (inside.incrementAndGet() > 1)
+                overlaps.incrementAndGet();
+            Thread.onSpinWait();
+            inside.decrementAndGet();
+            return null;
+        };
+        doAnswer(handle).when(orderHandler).handleEnterOrder(any());
+        doAnswer(handle).when(orderHandler).handleBatchOrder(any());
+        doAnswer(handle).when(orderHandler).handleDeleteOrder(any());
+        MatchingShards matchingShards = new MatchingShards(orderHandler, mock(EventPublisher.class), mock(RequestJournal.class), 0);
+        EnterOrderRq enterOrderRq = EnterOrderRq.createNewOrderRq(1, "ABC", 1, LocalDateTime.now(), Side.BUY, 10, 100, 1, 1, 0, 0);
+        BatchOrderRq batchOrderRq = new BatchOrderRq(2, List.of(BatchOrderEntry.of(enterOrderRq)));
+        DeleteOrderRq deleteOrderRq = new DeleteOrderRq(3, "ABC", Side.BUY, 1);
+
+        List<Thread> listeners = List.of(
+                new Thread(() -> IntStream.range(0, 5_000).forEach(i -> matchingShards.enterOrder(enterOrderRq))),
+                new Thread(() -> IntStream.range(0, 5_000).forEach(i -> matchingShards.batchOrder(batchOrderRq))),
+                new Thread(() -> IntStream.range(0, 5_000).forEach(i -> matchingShards.deleteOrder(deleteOrderRq))));
+        listeners.forEach(Thread::start);
+        for (Thread listener : listeners)
+            listener.join();
+
+        assertThat(overlaps).hasValue(0);
+        verify(orderHandler, times(5_000)).handleBatchOrder(batchOrderRq);
+    }
+
+    @Test
+    void a_request_failing_on_its_shard_is_rejected_through_its_publisher() {
+        OrderHandler orderHandler = mock(OrderHandler.class);
+        EventPublisher eventPublisher = mock(EventPublisher.class);
+        EnterOrderRq failing = EnterOrderRq.createNewOrderRq(1, "ABC", 10, LocalDateTime.now(), Side.BUY, 10, 100, 1, 1, 0, 0);
+        DeleteOrderRq next = new DeleteOrderRq(2, "ABC", Side.BUY, 20);
+        when(orderHandler.validateEnterOrderRq(failing)).thenReturn(List.of());
+        doThrow(new IllegalStateException("broken book")).when(orderHandler).handleEnterOrder(eq(failing), any(), any());
+        List<Event> gatewayEvents = Collections.synchronizedList(new ArrayList<>());
+        MatchingShards matchingShards = new MatchingShards(orderHandler, eventPublisher, mock(RequestJournal.class), 2);
+        matchingShards.start();
+
+        matchingShards.enterOrder(failing, gatewayEvents::add);
+        matchingShards.deleteOrder(next);
+        matchingShards.stop();
+
+        assertThat(gatewayEvents).containsExactly(new OrderRejectedEvent(1, 10, List.of(Message.REQUEST_PROCESSING_FAILED)));
+        verify(orderHandler).handleDeleteOrder(next);
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void a_batch_entry_failing_on_its_shard_is_rejected_inside_the_batch_event() {
+        OrderHandler orderHandler = mock(OrderHandler.class);
+        EventPublisher eventPublisher = mock(EventPublisher.class);
+        BatchOrderRq batchOrderRq = new BatchOrderRq(1, List.of(
+                BatchOrderEntry.of(EnterOrderRq.createNewOrderRq(1, "ABC", 1, LocalDateTime.now(), Side.BUY, 10, 100, 1, 1, 0, 0)),
+                BatchOrderEntry.of(EnterOrderRq.createNewOrderRq(1, "DEF", 2, LocalDateTime.now(), Side.BUY, 10, 100, 1, 1, 0, 0))));
+        when(orderHandler.validateBatchOrderRq(batchOrderRq)).thenReturn(List.of(List.of(), List.of()));
+        doAnswer(invocation -> {
+            int index = invocation.getArgument(1);
+            if (index == 1)
+                throw new IllegalStateException("broken book");
+            invocation.<Consumer<Event>>getArgument(3).accept(new OrderAcceptedEvent(1, 1));
+            return null;
+        }).when(orderHandler).handleBatchEntry(eq(batchOrderRq), anyInt(), any(), any());
+        MatchingShards matchingShards = new MatchingShards(orderHandler, eventPublisher, mock(RequestJournal.class), 2);
+        matchingShards.start();
+
+        matchingShards.batchOrder(batchOrderRq);
+        matchingShards.stop();
+
+        verify(eventPublisher).publish(new BatchEvent(1, List.of(
+                new OrderAcceptedEvent(1, 1),
+                new OrderRejectedEvent(1, 2, List.of(Message.REQUEST_PROCESSING_FAILED)))));
+    }
+}
@@ -4,7 +4,10 @@ import ir.ramtung.tinyme.domain.entity.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -76,4 +79,146 @@ class OrderBookTest {
         orderBook.removeByOrderId(Side.SELL, 10);
         assertThat(orderBook.getSellQueue()).isEqualTo(orders.subList(5, 9));
     }
-}
\ No newline at end of file
+
+    @Test
+    void enqueues_orders_with_the_same_price_in_arrival_order() {
+        OrderBook orderBook = security.getOrderBook();
+        Order order = new Order(11, security, Side.BUY, 100, 15450, orders.get(0).getBroker(), orders.get(0).getShareholder());
+        orderBook.enqueue(order);
+        assertThat(orderBook.getBuyQueue()).extracting("orderId").containsExactly(1L, 2L, 3L, 4L, 11L, 5L);
+    }
+
+    @Test
+    void puts_back_an_order_at_the_front_of_its_price_level() {
+        OrderBook orderBook = security.getOrderBook();
+        Order order = orders.get(8);
+        orderBook.removeByOrderId(Side.SELL, 9);
+        orderBook.putBack(order);
+        assertThat(orderBook.getSellQueue()).extracting("orderId").containsExactly(6L, 7L, 8L, 9L, 10L);
+        orderBook.removeByOrderId(Side.SELL, 10);
+        orderBook.putBack(orders.get(9));
+        assertThat(orderBook.getSellQueue()).extracting("orderId").containsExactly(6L, 7L, 8L, 10L, 9L);
+    }
+
+    @Test
+    void removes_an_order_in_the_middle_of_a_price_level_by_id() {
+        OrderBook orderBook = security.getOrderBook();
+        assertThat(orderBook.removeByOrderId(Side.SELL, 7)).isTrue();
+        assertThat(orderBook.findByOrderId(Side.SELL, 7)).isNull();
+        assertThat(orderBook.removeByOrderId(Side.SELL, 7)).isFalse();
+        assertThat(orderBook.getSellQueue()).extracting("orderId").containsExactly(6L, 8L, 9L, 10L);
+    }
+
+    @Test
+    void keeps_total_sell_quantity_of_shareholder_up_to_date() {
+        OrderBook orderBook = security.getOrderBook();
+        Shareholder shareholder = orders.get(0).getShareholder();
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(1840);
+        orderBook.removeByOrderId(Side.SELL, 7);
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(1555);
+        orderBook.decreaseQuantity(orders.get(5), 50);
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(1505);
+        orderBook.removeFirst(Side.SELL);
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(1205);
+        orderBook.removeByOrderId(Side.BUY, 1);
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(1205);
+    }
+
+    @Test
+    void dense_order_book_queues_orders_like_the_sorted_one() {
+        Security denseSecurity = Security.builder().tickSize(10).orderBook(new OrderBook(new PriceBand(15400, 15810), 10)).build();
+        Broker broker = orders.get(0).getBroker();
+        Shareholder shareholder = orders.get(0).getShareholder();
+        for (Order order : orders)
+            denseSecurity.getOrderBook().enqueue(new Order(order.getOrderId(), denseSecurity, order.getSide(), order.getQuantity(), order.getPrice(), broker, shareholder));
+        denseSecurity.getOrderBook().enqueue(new Order(11, denseSecurity, Side.BUY, 10, 15900, broker, shareholder));
+        security.getOrderBook().enqueue(new Order(11, security, Side.BUY, 10, 15900, broker, shareholder));
+
+        assertThat(denseSecurity.getOrderBook().getBuyQueue()).extracting("orderId")
+                .isEqualTo(security.getOrderBook().getBuyQueue().stream().map(Order::getOrderId).toList());
+        assertThat(denseSecurity.getOrderBook().getSellQueue()).extracting("orderId")
+                .isEqualTo(security.getOrderBook().getSellQueue().stream().map(Order::getOrderId).toList());
+    }
+
+    @Test
+    void dense_order_book_moves_the_best_level_across_the_band_edge() {
+        Security denseSecurity = Security.builder().tickSize(10).orderBook(new OrderBook(new PriceBand(15400, 15810), 10)).build();
+        OrderBook orderBook = denseSecurity.getOrderBook();
+        Broker broker = orders.get(0).getBroker();
+        Shareholder shareholder = orders.get(0).getShareholder();
+        orderBook.enqueue(new Order(1, denseSecurity, Side.SELL, 10, 15820, broker, shareholder));
+        orderBook.enqueue(new Order(2, denseSecurity, Side.SELL, 10, 15800, broker, shareholder));
+        orderBook.enqueue(new Order(3, denseSecurity, Side.SELL, 10, 15300, broker, shareholder));
+        Order buy = new Order(4, denseSecurity, Side.BUY, 10, 16000, broker, shareholder);
+
+        assertThat(orderBook.matchWithFirst(buy).getOrderId()).isEqualTo(3);
+        orderBook.removeFirst(Side.SELL);
+        assertThat(orderBook.matchWithFirst(buy).getOrderId()).isEqualTo(2);
+        orderBook.removeByOrderId(Side.SELL, 2);
+        assertThat(orderBook.matchWithFirst(buy).getOrderId()).isEqualTo(1);
+        orderBook.removeFirst(Side.SELL);
+        assertThat(orderBook.hasOrderOfType(Side.SELL)).isFalse();
+    }
+
+    @Test
+    void a_band_wider_than_the_dense_limit_falls_back_to_sorted_levels() {
+        PriceBand wideBand = new PriceBand(Integer.MIN_VALUE + 1, Integer.MAX_VALUE);
+        Security wideSecurity = Security.builder().orderBook(new OrderBook(wideBand, 1)).build();
+        OrderBook orderBook = wideSecurity.getOrderBook();
+        Broker broker = orders.get(0).getBroker();
+        Shareholder shareholder = orders.get(0).getShareholder();
+        orderBook.enqueue(new Order(1, wideSecurity, Side.SELL, 10, Integer.MAX_VALUE, broker, shareholder));
+        orderBook.enqueue(new Order(2, wideSecurity, Side.SELL, 10, 1, broker, shareholder));
+        orderBook.enqueue(new Order(3, wideSecurity, Side.BUY, 10, 200, broker, shareholder));
+
+        assertThat(orderBook.getPriceBand()).isEqualTo(wideBand);
+        assertThat(orderBook.getSellQueue()).extracting("orderId").containsExactly(2L, 1L);
+    }
+
+    @Test
+    void requeues_an_order_at_the_back_of_its_price_level() {
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.requeue(orders.get(6));
+        assertThat(orderBook.getSellQueue()).extracting("orderId").containsExactly(6L, 8L, 7L, 9L, 10L);
+        assertThat(orderBook.findByOrderId(Side.SELL, 7)).isEqualTo(orders.get(6));
+    }
+
+    @Test
+    void finds_orders_by_id_after_many_inserts_and_removals() {
+        OrderBook orderBook = security.getOrderBook();
+        Broker broker = orders.get(0).getBroker();
+        Shareholder shareholder = orders.get(0).getShareholder();
+        for (int i = 100; i < 1100; i++)
+            orderBook.enqueue(new Order(i, security, Side.BUY, 10, 15000 + i % 7, broker, shareholder));
+        for (int i = 100; i < 1100; i += 2)
+            assertThat(orderBook.removeByOrderId(Side.BUY, i)).isTrue();
+        for (int i = 100; i < 1100; i++)
+            assertThat(orderBook.findByOrderId(Side.BUY, i) == null).isEqualTo(i % 2 == 0);
+        assertThat(orderBook.getBuyQueue()).hasSize(505);
+    }
+
+    @Test
+    void bulk_loads_orders_into_the_same_queues_as_enqueue() {
+        Security loaded = Security.builder().build();
+        Broker broker = orders.get(0).getBroker();
+        Shareholder shareholder = orders.get(0).getShareholder();
+        shareholder.incPosition(loaded, 100_000);
+        List<Order> shuffled = new ArrayList<>();
+        for (Order order : orders)
+            shuffled.add(new Order(order.getOrderId(), loaded, order.getSide(), order.getQuantity(), order.getPrice(), broker, shareholder));
+        Collections.reverse(shuffled);
+        shuffled.sort(Comparator.comparingLong(order -> order.getOrderId() % 2));
+        shuffled.removeIf(order -> order.getOrderId() == 4 || order.getOrderId() == 8);
+        shuffled.add(new Order(4, loaded, Side.BUY, 526, 15450, broker, shareholder));
+        shuffled.add(new Order(8, loaded, Side.SELL, 800, 15810, broker, shareholder));
+
+        loaded.getOrderBook().bulkLoad(shuffled);
+
+        assertThat(loaded.getOrderBook().getBuyQueue()).extracting("orderId").containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(loaded.getOrderBook().getSellQueue()).extracting("orderId").containsExactly(6L, 7L, 8L, 10L, 9L);
+        assertThat(loaded.getOrderBook().findByOrderId(Side.SELL, 8).getQuantity()).isEqualTo(800);
+        assertThat(loaded.getOrderBook().totalSellQuantityByShareholder(shareholder))
+                .isEqualTo(security.getOrderBook().totalSellQuantityByShareholder(shareholder));
+        assertThat(shuffled).allMatch(order -> order.getStatus() == OrderStatus.QUEUED);
+    }
+}
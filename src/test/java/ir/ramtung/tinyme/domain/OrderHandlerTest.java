@@ -2,11 +2,15 @@ package ir.ramtung.tinyme.domain;
 
 import ir.ramtung.tinyme.config.MockedJMSTestConfig;
 import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.EngineMetrics;
+import ir.ramtung.tinyme.domain.service.MatchingOutcome;
 import ir.ramtung.tinyme.domain.service.OrderHandler;
 import ir.ramtung.tinyme.messaging.EventPublisher;
 import ir.ramtung.tinyme.messaging.Message;
 import ir.ramtung.tinyme.messaging.TradeDTO;
 import ir.ramtung.tinyme.messaging.event.*;
+import ir.ramtung.tinyme.messaging.request.BatchOrderEntry;
+import ir.ramtung.tinyme.messaging.request.BatchOrderRq;
 import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
 import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
 import ir.ramtung.tinyme.repository.BrokerRepository;
@@ -21,6 +25,7 @@ import org.springframework.context.annotation.Import;
 import org.springframework.test.annotation.DirtiesContext;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -41,6 +46,8 @@ public class OrderHandlerTest {
     BrokerRepository brokerRepository;
     @Autowired
     ShareholderRepository shareholderRepository;
+    @Autowired
+    EngineMetrics metrics;
     private Security security;
     private Shareholder shareholder;
     private Broker broker1;
@@ -81,6 +88,22 @@ public class OrderHandlerTest {
         verify(eventPublisher).publish(new OrderExecutedEvent(1, 200, List.of(new TradeDTO(trade))));
     }
 
+    @Test
+    void outcomes_rejections_and_stage_latencies_are_recorded() {
+        long accepted = metrics.getOutcomeCount(MatchingOutcome.OK);
+        long rejected = metrics.getRejectedRequests();
+        long validations = metrics.getHistogram(EngineMetrics.Stage.VALIDATION).getCount();
+        long matchings = metrics.getHistogram(EngineMetrics.Stage.MATCHING).getCount();
+
+        orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(1, "ABC", 200, LocalDateTime.now(), Side.SELL, 300, 15450, 2, shareholder.getShareholderId(), 0, 0));
+        orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(2, "ABC", 201, LocalDateTime.now(), Side.SELL, 300, -1, 2, shareholder.getShareholderId(), 0, 0));
+
+        assertThat(metrics.getOutcomeCount(MatchingOutcome.OK)).isEqualTo(accepted + 1);
+        assertThat(metrics.getRejectedRequests()).isEqualTo(rejected + 1);
+        assertThat(metrics.getHistogram(EngineMetrics.Stage.VALIDATION).getCount()).isEqualTo(validations + 2);
+        assertThat(metrics.getHistogram(EngineMetrics.Stage.MATCHING).getCount()).isEqualTo(matchings + 1);
+    }
+
     @Test
     void new_order_queued_with_no_trade() {
         orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(1, "ABC", 200, LocalDateTime.now(), Side.SELL, 300, 15450, 2, shareholder.getShareholderId(), 0,0));
@@ -557,4 +580,52 @@ public class OrderHandlerTest {
         assertThat(shareholder.hasEnoughPositionsOn(security, 500)).isTrue();
     }
 
+
+    @Test
+    void batch_entries_get_the_same_results_as_individual_requests_in_one_event() {
+        Order matchingBuyOrder = new Order(100, security, Side.BUY, 1000, 15500, broker1, shareholder);
+        security.getOrderBook().enqueue(matchingBuyOrder);
+        LocalDateTime time = LocalDateTime.now();
+        BatchOrderRq batchOrderRq = new BatchOrderRq(7, List.of(
+                BatchOrderEntry.of(EnterOrderRq.createNewOrderRq(1, "ABC", 200, time, Side.SELL, 300, 15450, 2, shareholder.getShareholderId(), 0, 0)),
+                BatchOrderEntry.of(EnterOrderRq.createNewOrderRq(2, "ABC", 201, time, Side.SELL, 300, 16000, 2, shareholder.getShareholderId(), 0, 0)),
+                BatchOrderEntry.of(EnterOrderRq.createUpdateOrderRq(3, "ABC", 201, time, Side.SELL, 200, 16000, 2, shareholder.getShareholderId(), 0)),
+                BatchOrderEntry.of(new DeleteOrderRq(4, "ABC", Side.SELL, 201)),
+                BatchOrderEntry.of(EnterOrderRq.createNewOrderRq(5, "XYZ", 202, time, Side.SELL, 300, 16000, 2, shareholder.getShareholderId(), 0, 0)),
+                new BatchOrderEntry()));
+
+        orderHandler.handleBatchOrder(batchOrderRq);
+
+        Order incomingSellOrder = new Order(200, security, Side.SELL, 300, 15450, broker2, shareholder);
+        Trade trade = new Trade(security, matchingBuyOrder.getPrice(), 300, matchingBuyOrder, incomingSellOrder);
+        ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+        verify(eventPublisher).publish(eventCaptor.capture());
+        assertThat(eventCaptor.getValue()).isEqualTo(new BatchEvent(7, List.of(
+                new OrderAcceptedEvent(1, 200),
+                new OrderExecutedEvent(1, 200, List.of(new TradeDTO(trade))),
+                new OrderAcceptedEvent(2, 201),
+                new OrderUpdatedEvent(3, 201),
+                new OrderDeletedEvent(4, 201),
+                new OrderRejectedEvent(5, 202, List.of(Message.UNKNOWN_SECURITY_ISIN)),
+                new OrderRejectedEvent(7, 0, List.of(Message.INVALID_BATCH_ENTRY)))));
+        assertThat(security.getOrderBook().findByOrderId(Side.SELL, 201)).isNull();
+    }
+
+    @Test
+    void brokers_touched_are_the_request_broker_and_those_of_the_orders_it_can_reach() {
+        Broker broker4 = Broker.builder().brokerId(4).build();
+        security.getOrderBook().enqueue(new Order(100, security, Side.BUY, 200, 15500, broker1, shareholder));
+        security.getOrderBook().enqueue(new Order(101, security, Side.BUY, 200, 15500, broker2, shareholder));
+        security.getOrderBook().enqueue(new Order(102, security, Side.BUY, 200, 15400, broker4, shareholder));
+        security.getOrderBook().enqueue(new Order(103, security, Side.BUY, 200, 15300, broker3, shareholder));
+        security.getOrderBook().enqueue(new Order(200, security, Side.SELL, 100, 16000, broker4, shareholder));
+        List<Broker> touched = new ArrayList<>();
+
+        orderHandler.forEachBrokerTouchedBy(EnterOrderRq.createNewOrderRq(1, "ABC", 300, LocalDateTime.now(), Side.SELL, 300, 15400, 3, shareholder.getShareholderId(), 0, 0), touched::add);
+        assertThat(touched).containsExactly(broker1, broker2);
+
+        touched.clear();
+        orderHandler.forEachBrokerTouchedBy(EnterOrderRq.createUpdateOrderRq(2, "ABC", 200, LocalDateTime.now(), Side.SELL, 500, 15400, 4, shareholder.getShareholderId(), 0), touched::add);
+        assertThat(touched).containsExactly(broker4, broker1, broker2, broker4);
+    }
 }
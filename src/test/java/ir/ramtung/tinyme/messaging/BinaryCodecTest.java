@@ -0,0 +1,153 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.event.*;
+import ir.ramtung.tinyme.messaging.request.BatchOrderEntry;
+import ir.ramtung.tinyme.messaging.request.BatchOrderRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Session;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class BinaryCodecTest {
+    private final BinaryCodec codec = new BinaryCodec();
+    private final LocalDateTime time = LocalDateTime.of(2024, 3, 14, 9, 26, 53, 589_793_238);
+
+    private Object roundTrip(Object message) {
+        byte[] payload = codec.encode(message);
+        assertThat(payload).hasSize(codec.sizeOf(message));
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        Object decoded = codec.decode(buffer);
+        assertThat(buffer.hasRemaining()).isFalse();
+        return decoded;
+    }
+
+    @Test
+    void new_order_request_round_trips() {
+        EnterOrderRq rq = EnterOrderRq.createNewOrderRq(1, "IRO1ABCD0001", 200, time, Side.SELL, 300, 15450, 2, 3, 100, 50);
+        assertThat(roundTrip(rq)).isEqualTo(rq);
+    }
+
+    @Test
+    void update_order_request_round_trips() {
+        EnterOrderRq rq = EnterOrderRq.createUpdateOrderRq(1, "ABC", 200, time, Side.BUY, 300, 15450, 2, 3, 0);
+        assertThat(roundTrip(rq)).isEqualTo(rq);
+    }
+
+    @Test
+    void delete_order_request_round_trips() {
+        DeleteOrderRq rq = new DeleteOrderRq(1, "ABC", Side.BUY, 200, time);
+        assertThat(roundTrip(rq)).isEqualTo(rq);
+    }
+
+    @Test
+    void missing_fields_round_trip_as_null() {
+        EnterOrderRq rq = new EnterOrderRq();
+        assertThat(roundTrip(rq)).isEqualTo(rq);
+    }
+
+    @Test
+    void events_round_trip_with_their_time() {
+        List<Event> events = List.of(
+                new OrderAcceptedEvent(time, 1, 200),
+                new OrderUpdatedEvent(time, 2, 200),
+                new OrderDeletedEvent(time, 3, 200),
+                new OrderRejectedEvent(time, 4, 200, List.of(Message.UNKNOWN_SECURITY_ISIN, Message.BUYER_HAS_NOT_ENOUGH_CREDIT)),
+                new OrderExecutedEvent(time, 5, 200, List.of(
+                        new TradeDTO("ABC", 15450, 100, 200, 10),
+                        new TradeDTO("ABC", 15500, 40, 200, 11))));
+        for (Event event : events) {
+            Event decoded = (Event) roundTrip(event);
+            assertThat(decoded).isEqualTo(event);
+            assertThat(decoded.getTime()).isEqualTo(time);
+        }
+    }
+
+    @Test
+    void batches_round_trip_with_their_entries_and_events() {
+        BatchOrderRq rq = new BatchOrderRq(9, List.of(
+                BatchOrderEntry.of(EnterOrderRq.createNewOrderRq(1, "ABC", 200, time, Side.SELL, 300, 15450, 2, 3, 0, 0)),
+                BatchOrderEntry.of(new DeleteOrderRq(2, "ABC", Side.SELL, 200, time)),
+                new BatchOrderEntry()));
+        BatchEvent event = new BatchEvent(time, 9, List.of(
+                new OrderAcceptedEvent(time, 1, 200),
+                new OrderRejectedEvent(time, 2, 200, List.of(Message.ORDER_ID_NOT_FOUND))));
+
+        assertThat(roundTrip(rq)).isEqualTo(rq);
+        assertThat(roundTrip(event)).isEqualTo(event);
+    }
+
+    @Test
+    void rejects_isins_wider_than_the_fixed_field() {
+        DeleteOrderRq rq = new DeleteOrderRq(1, "ABCDEFGHIJKLM", Side.BUY, 200, time);
+        assertThatThrownBy(() -> codec.encode(rq)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejects_non_ascii_isins() {
+        DeleteOrderRq rq = new DeleteOrderRq(1, "ABC\u00c9", Side.BUY, 200, time);
+        assertThatThrownBy(() -> codec.encode(rq)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejects_element_counts_that_do_not_fit_the_payload() {
+        ByteBuffer batch = ByteBuffer.allocate(13).put(BinaryCodec.BATCH_ORDER_RQ).putLong(1).putInt(Integer.MAX_VALUE).flip();
+        assertThatThrownBy(() -> codec.decode(batch)).isInstanceOf(IllegalArgumentException.class);
+
+        byte[] executed = codec.encode(new OrderExecutedEvent(time, 1, 2, List.of()));
+        ByteBuffer.wrap(executed).putInt(executed.length - 4, 2);
+        assertThatThrownBy(() -> codec.decode(ByteBuffer.wrap(executed))).isInstanceOf(IllegalArgumentException.class);
+
+        byte[] rejected = codec.encode(new OrderRejectedEvent(time, 1, 2, List.of()));
+        ByteBuffer.wrap(rejected).putShort(rejected.length - 2, (short) -1);
+        assertThatThrownBy(() -> codec.decode(ByteBuffer.wrap(rejected))).isInstanceOf(IllegalArgumentException.class);
+
+        ByteBuffer events = ByteBuffer.allocate(21).put(BinaryCodec.BATCH_EVENT).putLong(0).putLong(1).putInt(1).flip();
+        assertThatThrownBy(() -> codec.decode(events)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejects_batches_nested_in_batches_and_entries_of_the_wrong_type() {
+        ByteBuffer nestedEvents = ByteBuffer.allocate(21 * 10_000);
+        while (nestedEvents.hasRemaining())
+            nestedEvents.put(BinaryCodec.BATCH_EVENT).putLong(0).putLong(1).putInt(1);
+        assertThatThrownBy(() -> codec.decode(nestedEvents.flip())).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("cannot be nested");
+
+        byte[] inner = codec.encode(new BatchOrderRq(2, List.of()));
+        ByteBuffer nestedRequests = ByteBuffer.allocate(14 + inner.length).put(BinaryCodec.BATCH_ORDER_RQ).putLong(1).putInt(1).put((byte) 1).put(inner).flip();
+        assertThatThrownBy(() -> codec.decode(nestedRequests)).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("cannot be nested");
+
+        byte[] delete = codec.encode(new DeleteOrderRq(2, "ABC", Side.SELL, 200, time));
+        ByteBuffer mislabeled = ByteBuffer.allocate(14 + delete.length).put(BinaryCodec.BATCH_ORDER_RQ).putLong(1).putInt(1).put((byte) 1).put(delete).flip();
+        assertThatThrownBy(() -> codec.decode(mislabeled)).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("cannot be nested");
+
+        BatchEvent nested = new BatchEvent(time, 1, List.of(new BatchEvent(time, 2, List.of())));
+        assertThatThrownBy(() -> codec.encode(nested)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void converter_keeps_the_type_property_for_selectors() throws JMSException {
+        Session session = mock(Session.class);
+        BytesMessage message = mock(BytesMessage.class);
+        when(session.createBytesMessage()).thenReturn(message);
+        DeleteOrderRq rq = new DeleteOrderRq(1, "ABC", Side.BUY, 200, time);
+
+        new BinaryMessageConverter("_type").toMessage(rq, session);
+
+        verify(message).writeBytes(codec.encode(rq));
+        verify(message).setStringProperty("_type", DeleteOrderRq.class.getName());
+    }
+}
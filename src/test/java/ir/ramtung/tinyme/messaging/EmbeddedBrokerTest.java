@@ -0,0 +1,83 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.domain.entity.Broker;
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.Shareholder;
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.event.OrderAcceptedEvent;
+import ir.ramtung.tinyme.messaging.event.OrderExecutedEvent;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.DeliveryMode;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jms.connection.CachingConnectionFactory;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "embeddedBrokerAcceptor=")
+@ActiveProfiles({"test", "embedded"})
+@DirtiesContext
+public class EmbeddedBrokerTest {
+    @Autowired
+    JmsTemplate jmsTemplate;
+    @Autowired
+    ConnectionFactory connectionFactory;
+    @Autowired
+    SecurityRepository securityRepository;
+    @Autowired
+    BrokerRepository brokerRepository;
+    @Autowired
+    ShareholderRepository shareholderRepository;
+
+    @BeforeEach
+    void setup() {
+        securityRepository.clear();
+        brokerRepository.clear();
+        shareholderRepository.clear();
+        Security security = Security.builder().isin("ABC").build();
+        securityRepository.addSecurity(security);
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).build();
+        shareholder.incPosition(security, 100_000);
+        shareholderRepository.addShareholder(shareholder);
+        brokerRepository.addBroker(Broker.builder().brokerId(1).credit(100_000_000L).build());
+        jmsTemplate.setReceiveTimeout(5000);
+    }
+
+    @Test
+    void requests_and_events_flow_through_the_in_vm_broker() {
+        jmsTemplate.convertAndSend("RQ", EnterOrderRq.createNewOrderRq(1, "ABC", 100, LocalDateTime.now(), Side.SELL, 300, 15450, 1, 1, 0, 0));
+        jmsTemplate.convertAndSend("RQ", EnterOrderRq.createNewOrderRq(2, "ABC", 200, LocalDateTime.now(), Side.BUY, 300, 15450, 1, 1, 0, 0));
+
+        assertThat(jmsTemplate.receiveAndConvert("RS")).isEqualTo(new OrderAcceptedEvent(1, 100));
+        assertThat(jmsTemplate.receiveAndConvert("RS")).isEqualTo(new OrderAcceptedEvent(2, 200));
+        assertThat(jmsTemplate.receiveAndConvert("RS")).isInstanceOfSatisfying(OrderExecutedEvent.class,
+                executed -> assertThat(executed.getTrades()).singleElement().satisfies(trade -> assertThat(trade.quantity()).isEqualTo(300)));
+    }
+
+    @Test
+    void delivery_is_non_persistent_and_the_connection_factory_is_tuned() {
+        assertThat(jmsTemplate.isExplicitQosEnabled()).isTrue();
+        assertThat(jmsTemplate.getDeliveryMode()).isEqualTo(DeliveryMode.NON_PERSISTENT);
+        assertThat(connectionFactory).isInstanceOfSatisfying(CachingConnectionFactory.class, caching -> {
+            assertThat(caching.getSessionCacheSize()).isEqualTo(16);
+            assertThat(caching.getTargetConnectionFactory()).isInstanceOfSatisfying(ActiveMQConnectionFactory.class,
+                    artemis -> {
+                        assertThat(artemis.getConsumerWindowSize()).isEqualTo(4 * 1024 * 1024);
+                        assertThat(artemis.isCacheDestinations()).isTrue();
+                    });
+        });
+    }
+}
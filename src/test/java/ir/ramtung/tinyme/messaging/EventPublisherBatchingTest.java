@@ -0,0 +1,137 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.domain.service.EngineMetrics;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.event.OrderAcceptedEvent;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class EventPublisherBatchingTest {
+    private Session session;
+    private MessageProducer producer;
+    private JmsTemplate jmsTemplate;
+    private MessageConverter converter;
+
+    @BeforeEach
+    void setup() throws JMSException {
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        Connection connection = mock(Connection.class);
+        session = mock(Session.class);
+        producer = mock(MessageProducer.class);
+        converter = mock(MessageConverter.class);
+        when(connectionFactory.createConnection()).thenReturn(connection);
+        when(connection.createSession(anyBoolean(), anyInt())).thenReturn(session);
+        when(session.createProducer(any())).thenReturn(producer);
+        when(converter.toMessage(any(), any())).thenReturn(mock(jakarta.jms.Message.class));
+        jmsTemplate = spy(new JmsTemplate(connectionFactory));
+        jmsTemplate.setMessageConverter(converter);
+    }
+
+    private EventPublisher publisher(boolean async, int batchSize) {
+        EventPublisher eventPublisher = new EventPublisher(jmsTemplate, new EngineMetrics(false, false, 0), async, 1024, batchSize, 10_000);
+        ReflectionTestUtils.setField(eventPublisher, "responseQueue", "RS");
+        return eventPublisher;
+    }
+
+    @Test
+    void sends_every_event_synchronously_when_not_async() {
+        EventPublisher eventPublisher = publisher(false, 10);
+        doNothing().when(jmsTemplate).convertAndSend(anyString(), any(Object.class));
+
+        eventPublisher.publish(new OrderAcceptedEvent(1, 1));
+
+        verify(jmsTemplate).convertAndSend("RS", new OrderAcceptedEvent(1, 1));
+        assertThat(eventPublisher.getPublishedEvents()).isEqualTo(1);
+    }
+
+    @Test
+    void flushes_queued_events_in_transacted_batches_on_stop() throws JMSException {
+        EventPublisher eventPublisher = publisher(true, 10);
+        eventPublisher.start();
+        for (int i = 0; i < 95; i++)
+            eventPublisher.publish(new OrderAcceptedEvent(i, i));
+        eventPublisher.stop();
+
+        verify(producer, times(95)).send(any(jakarta.jms.Message.class));
+        verify(session, atLeast(10)).commit();
+        verify(jmsTemplate, never()).convertAndSend(anyString(), any(Object.class));
+        assertThat(eventPublisher.getPublishedEvents()).isEqualTo(95);
+        assertThat(eventPublisher.getSentBatches()).isBetween(10L, 95L);
+        assertThat(eventPublisher.getPendingEvents()).isZero();
+    }
+
+    @Test
+    void retries_a_failed_batch_after_reopening_the_session() throws JMSException {
+        doThrow(new JMSException("broker unavailable")).doNothing().when(session).commit();
+        EventPublisher eventPublisher = publisher(true, 10);
+        eventPublisher.start();
+        for (int i = 0; i < 5; i++)
+            eventPublisher.publish(new OrderAcceptedEvent(i, i));
+        eventPublisher.stop();
+
+        assertThat(eventPublisher.getPublishedEvents()).isEqualTo(5);
+        assertThat(eventPublisher.getFailedSends()).isEqualTo(1);
+        assertThat(eventPublisher.getDroppedEvents()).isZero();
+        verify(session, atLeast(2)).commit();
+    }
+
+    @Test
+    void an_event_that_cannot_be_converted_is_dropped_without_stopping_the_publisher() throws JMSException {
+        when(converter.toMessage(eq(new OrderAcceptedEvent(1, 1)), any())).thenThrow(new MessageConversionException("unsupported"));
+        EventPublisher eventPublisher = publisher(true, 1);
+        eventPublisher.start();
+        for (int i = 0; i < 3; i++)
+            eventPublisher.publish(new OrderAcceptedEvent(i, i));
+        eventPublisher.stop();
+
+        assertThat(eventPublisher.getPublishedEvents()).isEqualTo(2);
+        assertThat(eventPublisher.getDroppedEvents()).isEqualTo(1);
+        verify(producer, times(2)).send(any(jakarta.jms.Message.class));
+    }
+
+    @Test
+    void no_event_is_lost_or_reordered_when_publishing_races_with_stop() throws Exception {
+        List<Event> delivered = Collections.synchronizedList(new ArrayList<>());
+        when(converter.toMessage(any(), any())).thenAnswer(invocation -> {
+            jakarta.jms.Message message = mock(jakarta.jms.Message.class);
+            when(message.getObjectProperty("event")).thenReturn(invocation.getArgument(0));
+            return message;
+        });
+        doAnswer(invocation -> delivered.add((Event) invocation.<jakarta.jms.Message>getArgument(0).getObjectProperty("event")))
+                .when(producer).send(any(jakarta.jms.Message.class));
+        doAnswer(invocation -> delivered.add(invocation.getArgument(1)))
+                .when(jmsTemplate).convertAndSend(anyString(), any(Object.class));
+        EventPublisher eventPublisher = publisher(true, 8);
+        eventPublisher.start();
+
+        Thread matching = new Thread(() -> {
+            for (int i = 0; i < 2000; i++)
+                eventPublisher.publish(new OrderAcceptedEvent(i, i));
+        });
+        matching.start();
+        Thread.sleep(1);
+        eventPublisher.stop();
+        matching.join();
+
+        assertThat(delivered).hasSize(2000);
+        for (int i = 0; i < 2000; i++)
+            assertThat(delivered.get(i)).isEqualTo(new OrderAcceptedEvent(i, i));
+    }
+}
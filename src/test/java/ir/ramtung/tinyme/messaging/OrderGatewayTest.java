@@ -0,0 +1,293 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.domain.service.EngineMetrics;
+import ir.ramtung.tinyme.domain.service.MatchingShards;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.messaging.event.*;
+import ir.ramtung.tinyme.messaging.request.BatchOrderRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.RequestJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OrderGatewayTest {
+    private static final LocalDateTime ENTRY_TIME = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    private RequestDispatcher requestDispatcher;
+    private ExecutorService shard;
+    private OrderGateway gateway;
+    private GatewayClient client;
+
+    @BeforeEach
+    void setup() {
+        requestDispatcher = mock(RequestDispatcher.class);
+        shard = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    void teardown() throws IOException {
+        if (client != null)
+            client.close();
+        gateway.stop();
+        shard.shutdownNow();
+    }
+
+    private void startGateway(long throttleRate, long throttleBurst) throws IOException {
+        startGateway(throttleRate, throttleBurst, 1024);
+    }
+
+    private void startGateway(long throttleRate, long throttleBurst, int maxPendingEvents) throws IOException {
+        gateway = new OrderGateway(requestDispatcher, true, "127.0.0.1", 0, 1024, throttleRate, throttleBurst, maxPendingEvents);
+        gateway.start();
+        client = new GatewayClient(gateway.getLocalPort());
+    }
+
+    private void acceptOrders(boolean onShard) {
+        doAnswer(invocation -> {
+            EnterOrderRq rq = invocation.getArgument(0);
+            Consumer<Event> publisher = invocation.getArgument(1);
+            Runnable handle = () -> {
+                publisher.accept(new OrderAcceptedEvent(rq.getRequestId(), rq.getOrderId()));
+                if (rq.getSide() == Side.BUY)
+                    publisher.accept(new OrderExecutedEvent(rq.getRequestId(), rq.getOrderId(),
+                            List.of(new TradeDTO("ABC", 15450, rq.getQuantity(), rq.getOrderId(), 100))));
+            };
+            if (onShard)
+                shard.execute(handle);
+            else
+                handle.run();
+            return null;
+        }).when(requestDispatcher).dispatch(any(EnterOrderRq.class), any());
+    }
+
+    private static EnterOrderRq newOrder(long requestId, Side side) {
+        return EnterOrderRq.createNewOrderRq(requestId, "ABC", requestId, ENTRY_TIME, side, 300, 15450, 1, 1, 0, 0);
+    }
+
+    @Test
+    void responses_are_written_back_on_the_requesting_connection() throws IOException {
+        acceptOrders(false);
+        doAnswer(invocation -> {
+            DeleteOrderRq rq = invocation.getArgument(0);
+            invocation.<Consumer<Event>>getArgument(1).accept(new OrderDeletedEvent(rq.getRequestId(), rq.getOrderId()));
+            return null;
+        }).when(requestDispatcher).dispatch(any(DeleteOrderRq.class), any());
+        startGateway(0, 0);
+
+        client.send(newOrder(1, Side.SELL));
+        client.send(newOrder(2, Side.BUY));
+        client.send(new DeleteOrderRq(3, "ABC", Side.SELL, 1));
+
+        assertThat(client.receive()).isEqualTo(new OrderAcceptedEvent(1, 1));
+        assertThat(client.receive()).isEqualTo(new OrderAcceptedEvent(2, 2));
+        assertThat(client.receive()).isInstanceOfSatisfying(OrderExecutedEvent.class, executed -> {
+            assertThat(executed.getRequestId()).isEqualTo(2);
+            assertThat(executed.getTrades()).containsExactly(new TradeDTO("ABC", 15450, 300, 2, 100));
+        });
+        assertThat(client.receive()).isEqualTo(new OrderDeletedEvent(3, 1));
+        verify(requestDispatcher).dispatch(eq(newOrder(1, Side.SELL)), any());
+        assertThat(gateway.getReceivedRequests()).isEqualTo(3);
+    }
+
+    @Test
+    void events_published_by_other_threads_reach_the_connection_in_order() throws IOException {
+        acceptOrders(true);
+        startGateway(0, 0);
+
+        for (int i = 1; i <= 500; i++)
+            client.send(newOrder(i, Side.SELL));
+
+        for (int i = 1; i <= 500; i++)
+            assertThat(client.receive()).isEqualTo(new OrderAcceptedEvent(i, i));
+    }
+
+    @Test
+    void requests_over_the_connection_rate_are_rejected() throws IOException {
+        acceptOrders(false);
+        startGateway(1, 3);
+
+        for (int i = 1; i <= 5; i++)
+            client.send(newOrder(i, Side.SELL));
+
+        for (int i = 1; i <= 3; i++)
+            assertThat(client.receive()).isEqualTo(new OrderAcceptedEvent(i, i));
+        for (int i = 4; i <= 5; i++)
+            assertThat(client.receive()).isEqualTo(new OrderRejectedEvent(i, i, List.of(Message.REQUEST_RATE_LIMIT_EXCEEDED)));
+        verify(requestDispatcher, times(3)).dispatch(any(EnterOrderRq.class), any());
+        assertThat(gateway.getThrottledRequests()).isEqualTo(2);
+    }
+
+    @Test
+    void each_connection_has_its_own_throttle() throws IOException {
+        acceptOrders(false);
+        startGateway(1, 1);
+        try (GatewayClient other = new GatewayClient(gateway.getLocalPort())) {
+            client.send(newOrder(1, Side.SELL));
+            other.send(newOrder(2, Side.SELL));
+
+            assertThat(client.receive()).isEqualTo(new OrderAcceptedEvent(1, 1));
+            assertThat(other.receive()).isEqualTo(new OrderAcceptedEvent(2, 2));
+        }
+        assertThat(gateway.getAcceptedConnections()).isEqualTo(2);
+    }
+
+    @Test
+    void malformed_or_unsupported_frames_close_the_connection() throws IOException {
+        startGateway(0, 0);
+        client.sendRaw(ByteBuffer.allocate(4).putInt(0, 2048));
+        assertThat(client.isClosedByPeer()).isTrue();
+
+        client = new GatewayClient(gateway.getLocalPort());
+        client.send(new BatchOrderRq(1, List.of()));
+        assertThat(client.isClosedByPeer()).isTrue();
+        verifyNoInteractions(requestDispatcher);
+    }
+
+    @Test
+    void a_hostile_frame_only_loses_its_own_connection() throws IOException {
+        acceptOrders(false);
+        startGateway(0, 0);
+        try (GatewayClient other = new GatewayClient(gateway.getLocalPort())) {
+            ByteBuffer batch = ByteBuffer.allocate(4 + 13).putInt(13).put(BinaryCodec.BATCH_ORDER_RQ).putLong(1).putInt(Integer.MAX_VALUE);
+            client.sendRaw(batch.flip());
+            assertThat(client.isClosedByPeer()).isTrue();
+            ByteBuffer truncated = ByteBuffer.allocate(4 + 2).putInt(2).put(BinaryCodec.ENTER_ORDER_RQ).put((byte) 1);
+            client = new GatewayClient(gateway.getLocalPort());
+            client.sendRaw(truncated.flip());
+            assertThat(client.isClosedByPeer()).isTrue();
+
+            other.send(newOrder(1, Side.SELL));
+            assertThat(other.receive()).isEqualTo(new OrderAcceptedEvent(1, 1));
+        }
+    }
+
+    @Test
+    void connections_with_too_many_unsent_events_are_closed() throws IOException {
+        doAnswer(invocation -> {
+            EnterOrderRq rq = invocation.getArgument(0);
+            Consumer<Event> publisher = invocation.getArgument(1);
+            for (int i = 0; i < 10; i++)
+                publisher.accept(new OrderAcceptedEvent(rq.getRequestId(), rq.getOrderId()));
+            return null;
+        }).when(requestDispatcher).dispatch(any(EnterOrderRq.class), any());
+        startGateway(0, 0, 4);
+
+        client.send(newOrder(1, Side.SELL));
+
+        assertThat(client.isClosedByPeer()).isTrue();
+    }
+
+    @Test
+    void gateway_and_jms_requests_are_matched_one_at_a_time_when_not_sharded() throws Exception {
+        OrderHandler orderHandler = mock(OrderHandler.class);
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        Runnable match = () -> {
+            if (inside.incrementAndGet() > 1)
+                overlaps.incrementAndGet();
+            Thread.yield();
+            inside.decrementAndGet();
+        };
+        doAnswer(invocation -> {
+            match.run();
+            return null;
+        }).when(orderHandler).handleEnterOrder(any());
+        doAnswer(invocation -> {
+            match.run();
+            EnterOrderRq rq = invocation.getArgument(0);
+            invocation.<Consumer<Event>>getArgument(2).accept(new OrderAcceptedEvent(rq.getRequestId(), rq.getOrderId()));
+            return null;
+        }).when(orderHandler).handleEnterOrder(any(), any(), any());
+        EngineMetrics metrics = new EngineMetrics(false, false, 0);
+        RequestJournal requestJournal = new RequestJournal(orderHandler, false, "journal", 1024, 0);
+        requestDispatcher = new RequestDispatcher(new MatchingShards(orderHandler, mock(EventPublisher.class), requestJournal, 0),
+                new RequestSequencer(orderHandler, mock(EventPublisher.class), requestJournal, false, 2, WaitStrategy.BLOCKING), metrics);
+        startGateway(0, 0);
+        AtomicBoolean gatewayDone = new AtomicBoolean();
+        Thread jms = new Thread(() -> {
+            for (int i = 1; !gatewayDone.get(); i++) {
+                requestDispatcher.dispatch(EnterOrderRq.createNewOrderRq(i, "ABC", i, ENTRY_TIME, Side.SELL, 300, 15450, 2, 1, 0, 0));
+                LockSupport.parkNanos(10_000);
+            }
+        });
+
+        jms.start();
+        for (int i = 1; i <= 500; i++)
+            client.send(newOrder(i, Side.BUY));
+        for (int i = 1; i <= 500; i++)
+            assertThat(client.receive()).isEqualTo(new OrderAcceptedEvent(i, i));
+        gatewayDone.set(true);
+        jms.join();
+
+        assertThat(overlaps).hasValue(0);
+    }
+
+    private static class GatewayClient implements AutoCloseable {
+        private final BinaryCodec codec = new BinaryCodec();
+        private final SocketChannel channel;
+        private final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+
+        GatewayClient(int port) throws IOException {
+            channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", port));
+            channel.socket().setSoTimeout(5000);
+        }
+
+        void send(Object request) throws IOException {
+            int size = codec.sizeOf(request);
+            ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES + size);
+            frame.putInt(size);
+            codec.encode(request, frame);
+            sendRaw(frame.flip());
+        }
+
+        void sendRaw(ByteBuffer bytes) throws IOException {
+            while (bytes.hasRemaining())
+                channel.write(bytes);
+        }
+
+        Object receive() throws IOException {
+            readFully(header.clear());
+            ByteBuffer payload = ByteBuffer.allocate(header.getInt(0));
+            readFully(payload);
+            return codec.decode(payload.flip());
+        }
+
+        boolean isClosedByPeer() throws IOException {
+            return channel.socket().getInputStream().read() < 0;
+        }
+
+        private void readFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                int read = channel.socket().getInputStream().read(buffer.array(), buffer.position(), buffer.remaining());
+                if (read < 0)
+                    throw new IOException("Gateway closed the connection");
+                buffer.position(buffer.position() + read);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.event.OrderRejectedEvent;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RequestListenerTest {
+    private RequestDispatcher requestDispatcher;
+    private EventPublisher eventPublisher;
+    private MessageConverter messageConverter;
+    private Session session;
+    private MessageConsumer consumer;
+    private RequestListener requestListener;
+
+    @BeforeEach
+    void setup() throws JMSException {
+        requestDispatcher = mock(RequestDispatcher.class);
+        eventPublisher = mock(EventPublisher.class);
+        messageConverter = mock(MessageConverter.class);
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        Connection connection = mock(Connection.class);
+        session = mock(Session.class);
+        consumer = mock(MessageConsumer.class);
+        when(connectionFactory.createConnection()).thenReturn(connection);
+        when(connection.createSession(anyBoolean(), anyInt())).thenReturn(session);
+        when(session.createConsumer(any())).thenReturn(consumer);
+        requestListener = new RequestListener(requestDispatcher, eventPublisher, connectionFactory, messageConverter, true, 2, 10);
+        ReflectionTestUtils.setField(requestListener, "requestQueue", "RQ");
+    }
+
+    private jakarta.jms.Message message(Object request) throws JMSException {
+        jakarta.jms.Message message = mock(jakarta.jms.Message.class);
+        when(message.getStringProperty("_type")).thenReturn(request.getClass().getName());
+        when(messageConverter.fromMessage(message)).thenReturn(request);
+        return message;
+    }
+
+    @Test
+    void dispatches_requests_in_queue_order_and_commits_per_batch() throws Exception {
+        LocalDateTime time = LocalDateTime.now();
+        EnterOrderRq enter = EnterOrderRq.createNewOrderRq(1, "ABC", 10, time, Side.BUY, 100, 1000, 1, 1, 0, 0);
+        EnterOrderRq update = EnterOrderRq.createUpdateOrderRq(2, "ABC", 10, time, Side.BUY, 50, 1000, 1, 1, 0);
+        DeleteOrderRq delete = new DeleteOrderRq(3, "ABC", Side.BUY, 10, time);
+        jakarta.jms.Message first = message(enter);
+        jakarta.jms.Message second = message(update);
+        jakarta.jms.Message third = message(delete);
+        when(consumer.receive(anyLong())).thenReturn(first, third, null);
+        when(consumer.receiveNoWait()).thenReturn(second, null);
+
+        requestListener.start();
+        verify(requestDispatcher, timeout(1000)).dispatch(delete);
+        verify(session, timeout(1000).times(2)).commit();
+        requestListener.stop();
+
+        InOrder inOrder = inOrder(requestDispatcher);
+        inOrder.verify(requestDispatcher).dispatch(enter);
+        inOrder.verify(requestDispatcher).dispatch(update);
+        inOrder.verify(requestDispatcher).dispatch(delete);
+        assertThat(requestListener.getReceivedRequests()).isEqualTo(3);
+        assertThat(requestListener.getReceivedBatches()).isEqualTo(2);
+    }
+
+    @Test
+    void discards_messages_of_unknown_type() throws JMSException {
+        jakarta.jms.Message message = mock(jakarta.jms.Message.class);
+        when(message.getStringProperty("_type")).thenReturn("java.lang.String");
+
+        requestListener.onMessage(message);
+
+        verifyNoInteractions(requestDispatcher, messageConverter);
+        assertThat(requestListener.getDiscardedRequests()).isEqualTo(1);
+    }
+
+    @Test
+    void rejects_a_request_whose_dispatch_fails_and_keeps_the_batch_going() throws JMSException {
+        LocalDateTime time = LocalDateTime.now();
+        EnterOrderRq failing = EnterOrderRq.createNewOrderRq(1, "ABC", 10, time, Side.BUY, 100, 1000, 1, 1, 0, 0);
+        DeleteOrderRq next = new DeleteOrderRq(2, "ABC", Side.BUY, 20, time);
+        jakarta.jms.Message first = message(failing);
+        jakarta.jms.Message second = message(next);
+        doThrow(new IllegalStateException("The request journal is not running")).when(requestDispatcher).dispatch(failing);
+        when(consumer.receive(anyLong())).thenReturn(first, (jakarta.jms.Message) null);
+        when(consumer.receiveNoWait()).thenReturn(second, (jakarta.jms.Message) null);
+
+        requestListener.start();
+        verify(session, timeout(1000)).commit();
+        requestListener.stop();
+
+        verify(eventPublisher).publish(new OrderRejectedEvent(1, 10, List.of(Message.REQUEST_PROCESSING_FAILED)));
+        verify(requestDispatcher).dispatch(next);
+        assertThat(requestListener.getFailedRequests()).isEqualTo(1);
+        assertThat(requestListener.getReceivedRequests()).isEqualTo(1);
+        assertThat(requestListener.getDiscardedRequests()).isZero();
+    }
+
+    @Test
+    void discards_messages_that_cannot_be_converted_without_rejecting_them() throws JMSException {
+        jakarta.jms.Message message = mock(jakarta.jms.Message.class);
+        when(message.getStringProperty("_type")).thenReturn(EnterOrderRq.class.getName());
+        when(messageConverter.fromMessage(message)).thenThrow(new MessageConversionException("truncated"));
+
+        requestListener.onMessage(message);
+
+        verifyNoInteractions(requestDispatcher, eventPublisher);
+        assertThat(requestListener.getDiscardedRequests()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,91 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.event.OrderAcceptedEvent;
+import ir.ramtung.tinyme.messaging.event.OrderDeletedEvent;
+import ir.ramtung.tinyme.messaging.event.OrderRejectedEvent;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.RequestJournal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RequestSequencerTest {
+    @ParameterizedTest
+    @EnumSource(WaitStrategy.class)
+    void publishes_the_events_of_all_requests_in_sequence(WaitStrategy waitStrategy) {
+        OrderHandler orderHandler = mock(OrderHandler.class);
+        EventPublisher eventPublisher = mock(EventPublisher.class);
+        when(orderHandler.validateEnterOrderRq(any())).thenAnswer(invocation ->
+                invocation.<EnterOrderRq>getArgument(0).getQuantity() > 0 ? List.of() : List.of(Message.ORDER_QUANTITY_NOT_POSITIVE));
+        when(orderHandler.validateDeleteOrderRq(any())).thenReturn(List.of());
+        doAnswer(invocation -> {
+            EnterOrderRq rq = invocation.getArgument(0);
+            List<String> errors = invocation.getArgument(1);
+            Consumer<Event> publisher = invocation.getArgument(2);
+            if (errors.isEmpty())
+                publisher.accept(new OrderAcceptedEvent(rq.getRequestId(), rq.getOrderId()));
+            else
+                publisher.accept(new OrderRejectedEvent(rq.getRequestId(), rq.getOrderId(), errors));
+            return null;
+        }).when(orderHandler).handleEnterOrder(any(), any(), any());
+        doAnswer(invocation -> {
+            DeleteOrderRq rq = invocation.getArgument(0);
+            invocation.<Consumer<Event>>getArgument(2).accept(new OrderDeletedEvent(rq.getRequestId(), rq.getOrderId()));
+            return null;
+        }).when(orderHandler).handleDeleteOrder(any(), any(), any());
+
+        RequestSequencer sequencer = new RequestSequencer(orderHandler, eventPublisher, mock(RequestJournal.class), true, 8, waitStrategy);
+        sequencer.start();
+        for (int i = 1; i <= 100; i++)
+            sequencer.enterOrder(EnterOrderRq.createNewOrderRq(i, "ABC", i, LocalDateTime.now(), Side.BUY, i % 10, 100, 1, 1, 0, 0));
+        sequencer.deleteOrder(new DeleteOrderRq(101, "ABC", Side.BUY, 1));
+        sequencer.stop();
+
+        ArgumentCaptor<Event> events = ArgumentCaptor.forClass(Event.class);
+        verify(eventPublisher, times(101)).publish(events.capture());
+        for (int i = 1; i <= 100; i++) {
+            if (i % 10 == 0)
+                assertThat(events.getAllValues().get(i - 1)).isEqualTo(new OrderRejectedEvent(i, i, List.of(Message.ORDER_QUANTITY_NOT_POSITIVE)));
+            else
+                assertThat(events.getAllValues().get(i - 1)).isEqualTo(new OrderAcceptedEvent(i, i));
+        }
+        assertThat(events.getAllValues().get(100)).isEqualTo(new OrderDeletedEvent(101, 1));
+    }
+
+    @Test
+    void events_of_a_request_go_to_its_own_publisher_when_given() {
+        OrderHandler orderHandler = mock(OrderHandler.class);
+        EventPublisher eventPublisher = mock(EventPublisher.class);
+        when(orderHandler.validateEnterOrderRq(any())).thenReturn(List.of());
+        doAnswer(invocation -> {
+            EnterOrderRq rq = invocation.getArgument(0);
+            invocation.<Consumer<Event>>getArgument(2).accept(new OrderAcceptedEvent(rq.getRequestId(), rq.getOrderId()));
+            return null;
+        }).when(orderHandler).handleEnterOrder(any(), any(), any());
+        List<Event> sessionEvents = new CopyOnWriteArrayList<>();
+
+        RequestSequencer sequencer = new RequestSequencer(orderHandler, eventPublisher, mock(RequestJournal.class), true, 8, WaitStrategy.BLOCKING);
+        sequencer.start();
+        sequencer.enterOrder(EnterOrderRq.createNewOrderRq(1, "ABC", 1, LocalDateTime.now(), Side.BUY, 10, 100, 1, 1, 0, 0), sessionEvents::add);
+        sequencer.enterOrder(EnterOrderRq.createNewOrderRq(2, "ABC", 2, LocalDateTime.now(), Side.BUY, 10, 100, 1, 1, 0, 0));
+        sequencer.stop();
+
+        assertThat(sessionEvents).containsExactly(new OrderAcceptedEvent(1, 1));
+        verify(eventPublisher).publish(new OrderAcceptedEvent(2, 2));
+        verifyNoMoreInteractions(eventPublisher);
+    }
+}
@@ -0,0 +1,102 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CheckpointServiceTest {
+    @TempDir
+    Path directory;
+    private BrokerRepository brokerRepository;
+    private ShareholderRepository shareholderRepository;
+    private SecurityRepository securityRepository;
+    private CheckpointService checkpointService;
+    private Broker broker;
+    private Shareholder shareholder;
+    private Security security;
+
+    @BeforeEach
+    void setup() {
+        brokerRepository = new BrokerRepository();
+        shareholderRepository = new ShareholderRepository();
+        securityRepository = new SecurityRepository();
+        checkpointService = service();
+        broker = Broker.builder().brokerId(1).name("Mofid").credit(1_000_000).build();
+        shareholder = Shareholder.builder().shareholderId(7).name("Ali").build();
+        security = Security.builder().isin("ABC").tickSize(10).lotSize(5).build();
+        brokerRepository.addBroker(broker);
+        brokerRepository.addBroker(Broker.builder().brokerId(2).name("Agah").credit(500).build());
+        shareholderRepository.addShareholder(shareholder);
+        securityRepository.addSecurity(security);
+        shareholder.incPosition(security, 500);
+        security.getOrderBook().enqueue(new Order(1, security, Side.BUY, 100, 1500, broker, shareholder, LocalDateTime.of(2024, 5, 1, 9, 0), 0));
+    }
+
+    private CheckpointService service() {
+        return new CheckpointService(brokerRepository, shareholderRepository, securityRepository, true, directory.toString(), 0, OrderBook.DEFAULT_MAX_DENSE_LEVELS);
+    }
+
+    @Test
+    void writes_everything_first_and_only_touched_entities_afterwards() throws IOException {
+        checkpointService.checkpoint();
+        assertThat(checkpointService.getWrittenFiles()).isEqualTo(4);
+
+        checkpointService.checkpoint();
+        assertThat(checkpointService.getCheckpoints()).isEqualTo(1);
+
+        broker.decreaseCreditBy(1000);
+        checkpointService.touch(broker);
+        checkpointService.checkpoint();
+        assertThat(checkpointService.getCheckpoints()).isEqualTo(2);
+        assertThat(checkpointService.getWrittenFiles()).isEqualTo(5);
+
+        CheckpointService restarted = service();
+        assertThat(restarted.exists()).isTrue();
+        restarted.load();
+        Broker restoredBroker = brokerRepository.findBrokerById(1);
+        assertThat(restoredBroker).isNotSameAs(broker);
+        assertThat(restoredBroker.getCredit()).isEqualTo(999_000);
+        assertThat(brokerRepository.findBrokerById(2).getCredit()).isEqualTo(500);
+        Security restoredSecurity = securityRepository.findSecurityByIsin("ABC");
+        assertThat(shareholderRepository.findShareholderById(7).hasEnoughPositionsOn(restoredSecurity, 500)).isTrue();
+        assertThat(restoredSecurity.getOrderBook().findByOrderId(Side.BUY, 1).getBroker()).isSameAs(restoredBroker);
+    }
+
+    @Test
+    void rolls_committed_files_forward_and_drops_uncommitted_ones() throws IOException {
+        checkpointService.checkpoint();
+        Path brokers = directory.resolve("brokers");
+        Files.writeString(brokers.resolve("1.csv.1"), "brokerId,name,credit\n1,Mofid,42\n");
+        Files.writeString(brokers.resolve("2.csv.2"), "brokerId,name,credit\n2,Agah,0\n");
+
+        service().load();
+
+        assertThat(brokerRepository.findBrokerById(1).getCredit()).isEqualTo(42);
+        assertThat(brokerRepository.findBrokerById(2).getCredit()).isEqualTo(500);
+        try (var files = Files.list(brokers)) {
+            assertThat(files.map(path -> path.getFileName().toString())).containsExactlyInAnyOrder("1.csv", "2.csv");
+        }
+    }
+
+    @Test
+    void captures_state_as_of_the_handoff_even_if_it_changes_before_writing() throws IOException {
+        checkpointService.checkpoint();
+        security.getOrderBook().findByOrderId(Side.BUY, 1).decreaseQuantity(40);
+        broker.decreaseCreditBy(1000);
+
+        service().load();
+
+        Order restored = securityRepository.findSecurityByIsin("ABC").getOrderBook().findByOrderId(Side.BUY, 1);
+        assertThat(restored.getQuantity()).isEqualTo(100);
+        assertThat(restored.getPrice()).isEqualTo(1500);
+        assertThat(brokerRepository.findBrokerById(1).getCredit()).isEqualTo(1_000_000);
+    }
+}
@@ -0,0 +1,142 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class DataLoaderTest {
+    @TempDir
+    Path directory;
+    private BrokerRepository brokerRepository;
+    private ShareholderRepository shareholderRepository;
+    private SecurityRepository securityRepository;
+    private SnapshotStore snapshotStore;
+    private RequestJournal requestJournal;
+    private DataLoader dataLoader;
+
+    @BeforeEach
+    void setup() {
+        brokerRepository = new BrokerRepository();
+        shareholderRepository = new ShareholderRepository();
+        securityRepository = new SecurityRepository();
+        snapshotStore = mock(SnapshotStore.class);
+        requestJournal = mock(RequestJournal.class);
+        dataLoader = new DataLoader(brokerRepository, shareholderRepository, securityRepository, snapshotStore, requestJournal, mock(CheckpointService.class));
+        for (String name : List.of("broker", "shareholder", "security", "position", "orderBook"))
+            ReflectionTestUtils.setField(dataLoader, name + "CsvResource", new FileSystemResource(directory.resolve(name + ".csv")));
+        ReflectionTestUtils.setField(dataLoader, "parallelism", 4);
+        ReflectionTestUtils.setField(dataLoader, "maxDenseLevels", OrderBook.DEFAULT_MAX_DENSE_LEVELS);
+    }
+
+    private static List<String> describe(List<Order> queue) {
+        return queue.stream()
+                .map(order -> order.getOrderId() + ":" + order.getPrice() + ":" + order.getInitialQuantity() + ":" + order.getQuantity()
+                        + ":" + order.getEntryTime() + ":" + order.getMinimumExecutionQuantity()
+                        + (order instanceof IcebergOrder iceberg ? ":" + iceberg.getPeakSize() + "/" + iceberg.getDisplayedQuantity() : ""))
+                .toList();
+    }
+
+    @Test
+    void exported_state_is_imported_back() throws IOException {
+        Broker broker = Broker.builder().brokerId(1).name("Mofid").credit(1_000_000).build();
+        Shareholder shareholder = Shareholder.builder().shareholderId(7).name("Ali").build();
+        Security sorted = Security.builder().isin("ABC").tickSize(10).lotSize(5).build();
+        Security dense = Security.builder().isin("DEF").orderBook(new OrderBook(new PriceBand(100, 200), 1)).build();
+        brokerRepository.addBroker(broker);
+        shareholderRepository.addShareholder(shareholder);
+        securityRepository.addSecurity(sorted);
+        securityRepository.addSecurity(dense);
+        shareholder.incPosition(sorted, 500);
+        shareholder.incPosition(dense, 800);
+        LocalDateTime time = LocalDateTime.of(2024, 5, 1, 9, 0);
+        sorted.getOrderBook().enqueue(new Order(1, sorted, Side.BUY, 100, 1500, broker, shareholder, time, 0));
+        sorted.getOrderBook().enqueue(new Order(2, sorted, Side.BUY, 200, 1510, broker, shareholder, time.plusSeconds(1), 20));
+        sorted.getOrderBook().enqueue(new IcebergOrder(3, sorted, Side.SELL, 400, 1600, broker, shareholder, time.plusSeconds(2), 50, 0));
+        dense.getOrderBook().enqueue(new Order(4, dense, Side.SELL, 100, 150, broker, shareholder, time, 0));
+        List<String> sortedBuys = describe(sorted.getOrderBook().getBuyQueue());
+        List<String> sortedSells = describe(sorted.getOrderBook().getSellQueue());
+        List<String> denseSells = describe(dense.getOrderBook().getSellQueue());
+
+        dataLoader.exportCsv(7);
+
+        assertThat(dataLoader.importCsv()).isEqualTo(7);
+
+        Broker restoredBroker = brokerRepository.findBrokerById(1);
+        assertThat(restoredBroker).isNotSameAs(broker);
+        assertThat(restoredBroker.getCredit()).isEqualTo(1_000_000);
+        Shareholder restoredShareholder = shareholderRepository.findShareholderById(7);
+        assertThat(restoredShareholder.getName()).isEqualTo("Ali");
+        Security restoredSorted = securityRepository.findSecurityByIsin("ABC");
+        Security restoredDense = securityRepository.findSecurityByIsin("DEF");
+        assertThat(restoredSorted.getLotSize()).isEqualTo(5);
+        assertThat(restoredDense.getOrderBook().getPriceBand()).isEqualTo(new PriceBand(100, 200));
+        assertThat(restoredShareholder.hasEnoughPositionsOn(restoredSorted, 500)).isTrue();
+        assertThat(restoredShareholder.hasEnoughPositionsOn(restoredDense, 801)).isFalse();
+        assertThat(describe(restoredSorted.getOrderBook().getBuyQueue())).isEqualTo(sortedBuys);
+        assertThat(describe(restoredSorted.getOrderBook().getSellQueue())).isEqualTo(sortedSells);
+        assertThat(describe(restoredDense.getOrderBook().getSellQueue())).isEqualTo(denseSells);
+        assertThat(restoredDense.getOrderBook().findByOrderId(Side.SELL, 4).getBroker()).isSameAs(restoredBroker);
+    }
+
+    @Test
+    void an_export_interrupted_before_its_marker_leaves_the_previous_one_in_place() throws IOException {
+        brokerRepository.addBroker(Broker.builder().brokerId(1).credit(100).build());
+        dataLoader.exportCsv(3);
+        brokerRepository.findBrokerById(1).increaseCreditBy(50);
+        Files.writeString(directory.resolve("broker.csv.2"), "brokerId,name,credit\n1,,150\n");
+
+        assertThat(dataLoader.importCsv()).isEqualTo(3);
+        assertThat(brokerRepository.findBrokerById(1).getCredit()).isEqualTo(100);
+        assertThat(directory.resolve("broker.csv.2")).doesNotExist();
+    }
+
+    @Test
+    void an_export_interrupted_after_its_marker_is_completed_on_import() throws IOException {
+        brokerRepository.addBroker(Broker.builder().brokerId(1).credit(100).build());
+        dataLoader.exportCsv(3);
+        String previous = Files.readString(directory.resolve("broker.csv"));
+        brokerRepository.findBrokerById(1).increaseCreditBy(50);
+        dataLoader.exportCsv(5);
+        Files.move(directory.resolve("broker.csv"), directory.resolve("broker.csv.2"));
+        Files.writeString(directory.resolve("broker.csv"), previous);
+
+        assertThat(dataLoader.importCsv()).isEqualTo(5);
+        assertThat(brokerRepository.findBrokerById(1).getCredit()).isEqualTo(150);
+        assertThat(directory.resolve("broker.csv.2")).doesNotExist();
+    }
+
+    @Test
+    void saved_state_records_the_journal_position_before_the_journal_is_truncated() throws Exception {
+        when(snapshotStore.isEnabled()).thenReturn(true);
+        when(requestJournal.getPosition()).thenReturn(9L);
+
+        dataLoader.saveAll();
+
+        InOrder inOrder = inOrder(snapshotStore, requestJournal);
+        inOrder.verify(snapshotStore).save(9);
+        inOrder.verify(requestJournal).truncate(9);
+    }
+
+    @Test
+    void replay_resumes_from_the_position_recorded_in_the_loaded_state() throws Exception {
+        when(snapshotStore.exists()).thenReturn(true);
+        when(snapshotStore.load()).thenReturn(9L);
+
+        dataLoader.loadAll();
+
+        verify(requestJournal).replayFrom(9);
+    }
+}
@@ -0,0 +1,117 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.config.MockedJMSTestConfig;
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.MatchingShards;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {"matchingShards=4", "journalEnabled=true", "journalSegmentSize=1048576"})
+@Import(MockedJMSTestConfig.class)
+@DirtiesContext
+class RequestJournalReplayTest {
+    private static final List<String> ISINS = List.of("ABC", "DEF");
+    private static Path directory;
+
+    @Autowired
+    MatchingShards matchingShards;
+    @Autowired
+    RequestJournal requestJournal;
+    @Autowired
+    OrderHandler orderHandler;
+    @Autowired
+    SecurityRepository securityRepository;
+    @Autowired
+    BrokerRepository brokerRepository;
+    @Autowired
+    ShareholderRepository shareholderRepository;
+
+    @DynamicPropertySource
+    static void journalDirectory(DynamicPropertyRegistry registry) throws IOException {
+        directory = Files.createTempDirectory("journal");
+        registry.add("journalDirectory", directory::toString);
+    }
+
+    private void setupState() {
+        securityRepository.clear();
+        brokerRepository.clear();
+        shareholderRepository.clear();
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).build();
+        for (String isin : ISINS) {
+            Security security = Security.builder().isin(isin).build();
+            securityRepository.addSecurity(security);
+            shareholder.incPosition(security, 1_000_000);
+        }
+        shareholderRepository.addShareholder(shareholder);
+        for (int brokerId = 1; brokerId <= 3; brokerId++)
+            brokerRepository.addBroker(Broker.builder().brokerId(brokerId).credit(20_000).build());
+    }
+
+    private String describeState() {
+        StringJoiner state = new StringJoiner("\n");
+        for (String isin : ISINS) {
+            OrderBook orderBook = securityRepository.findSecurityByIsin(isin).getOrderBook();
+            for (Side side : Side.values())
+                orderBook.forEachOrder(side, order -> state.add(isin + " " + side + " " + order.getOrderId() + " " + order.getPrice() + " " + order.getQuantity()));
+        }
+        brokerRepository.allBrokers().forEach(broker -> state.add("broker " + broker.getBrokerId() + " " + broker.getCredit()));
+        Map<Security, Integer> positions = shareholderRepository.findShareholderById(1).getPositions();
+        for (String isin : ISINS)
+            state.add("position " + isin + " " + positions.get(securityRepository.findSecurityByIsin(isin)));
+        return state.toString();
+    }
+
+    @Test
+    void replaying_the_journal_rebuilds_what_concurrent_sharded_dispatch_produced() throws InterruptedException {
+        setupState();
+        requestJournal.reset();
+        LocalDateTime time = LocalDateTime.of(2024, 1, 1, 9, 0);
+        List<Thread> producers = IntStream.range(0, 3).mapToObj(producer -> new Thread(() -> {
+            Random random = new Random(producer);
+            for (int i = 0; i < 300; i++) {
+                long id = producer * 1000L + i + 1;
+                String isin = ISINS.get(random.nextInt(ISINS.size()));
+                Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+                if (i > 0 && random.nextInt(4) == 0)
+                    matchingShards.deleteOrder(new DeleteOrderRq(id, isin, side, producer * 1000L + random.nextInt(i) + 1));
+                else
+                    matchingShards.enterOrder(EnterOrderRq.createNewOrderRq(id, isin, id, time, side,
+                            1 + random.nextInt(20), 100 + random.nextInt(10), 1 + random.nextInt(3), 1, 0, 0));
+            }
+        })).toList();
+        producers.forEach(Thread::start);
+        for (Thread producer : producers)
+            producer.join();
+        matchingShards.stop();
+        requestJournal.stop();
+        String live = describeState();
+
+        setupState();
+        RequestJournal replay = new RequestJournal(orderHandler, true, directory.toString(), 1048576, 0);
+        replay.start();
+        replay.stop();
+
+        assertThat(replay.getReplayedRequests()).isEqualTo(900);
+        assertThat(describeState()).isEqualTo(live);
+    }
+}
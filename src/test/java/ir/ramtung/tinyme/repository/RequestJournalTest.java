@@ -0,0 +1,152 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RequestJournalTest {
+    @TempDir
+    Path directory;
+    private OrderHandler orderHandler;
+
+    @BeforeEach
+    void setup() {
+        orderHandler = mock(OrderHandler.class);
+        when(orderHandler.validateEnterOrderRq(any())).thenReturn(List.of());
+        when(orderHandler.validateDeleteOrderRq(any())).thenReturn(List.of());
+    }
+
+    private RequestJournal journal() {
+        return new RequestJournal(orderHandler, true, directory.toString(), 1024, 1);
+    }
+
+    private List<EnterOrderRq> requests(int count) {
+        LocalDateTime time = LocalDateTime.of(2024, 1, 1, 9, 0);
+        return IntStream.range(0, count)
+                .mapToObj(i -> EnterOrderRq.createNewOrderRq(i, "ABC", i + 1, time.plusNanos(i), Side.BUY, 10, 100, 1, 1, 0, 0))
+                .toList();
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    @Test
+    void replays_requests_across_rolled_segments_in_order() throws IOException {
+        RequestJournal journal = journal();
+        journal.start();
+        List<EnterOrderRq> requests = requests(40);
+        DeleteOrderRq deleteOrderRq = new DeleteOrderRq(40, "ABC", Side.BUY, 3, LocalDateTime.of(2024, 1, 1, 10, 0));
+        requests.forEach(journal::append);
+        journal.append(deleteOrderRq);
+        journal.stop();
+        assertThat(segments().size()).isGreaterThan(1);
+
+        RequestJournal restarted = journal();
+        restarted.start();
+        restarted.stop();
+
+        InOrder inOrder = inOrder(orderHandler);
+        for (EnterOrderRq rq : requests)
+            inOrder.verify(orderHandler).handleEnterOrder(eq(rq), eq(List.of()), any());
+        inOrder.verify(orderHandler).handleDeleteOrder(eq(deleteOrderRq), eq(List.of()), any());
+        assertThat(restarted.getReplayedRequests()).isEqualTo(41);
+    }
+
+    @Test
+    void stops_replay_at_a_torn_record() throws IOException {
+        RequestJournal journal = journal();
+        journal.start();
+        requests(3).forEach(journal::append);
+        journal.stop();
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            int second = 8 + channel.map(FileChannel.MapMode.READ_ONLY, 0, 4).getInt(0);
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3, 4}), second + 8 + 16);
+        }
+
+        RequestJournal restarted = journal();
+        restarted.start();
+        restarted.stop();
+
+        verify(orderHandler, times(1)).handleEnterOrder(any(), any(), any());
+    }
+
+    @Test
+    void reset_discards_journaled_requests() throws IOException {
+        RequestJournal journal = journal();
+        journal.start();
+        requests(5).forEach(journal::append);
+        journal.reset();
+        journal.stop();
+        journal.reset();
+
+        RequestJournal restarted = journal();
+        restarted.start();
+        restarted.stop();
+
+        verify(orderHandler, never()).handleEnterOrder(any(), any(), any());
+        assertThat(segments()).hasSize(1);
+    }
+
+    @Test
+    void replay_skips_segments_covered_by_the_saved_state_even_if_they_were_not_truncated() throws IOException {
+        RequestJournal journal = journal();
+        journal.start();
+        requests(40).forEach(journal::append);
+        journal.stop();
+        long position = journal.getPosition();
+
+        RequestJournal restarted = journal();
+        restarted.replayFrom(position);
+        restarted.start();
+        EnterOrderRq later = EnterOrderRq.createNewOrderRq(40, "ABC", 41, LocalDateTime.of(2024, 1, 1, 10, 0), Side.SELL, 10, 100, 1, 1, 0, 0);
+        restarted.append(later);
+        restarted.stop();
+        assertThat(restarted.getReplayedRequests()).isZero();
+
+        RequestJournal again = journal();
+        again.replayFrom(position);
+        again.start();
+        again.stop();
+        again.truncate(position);
+
+        verify(orderHandler, times(1)).handleEnterOrder(any(), any(), any());
+        verify(orderHandler).handleEnterOrder(eq(later), eq(List.of()), any());
+        assertThat(segments()).allMatch(segment -> segment.getFileName().toString().compareTo(String.format("journal-%010d.log", position)) >= 0);
+    }
+
+    @Test
+    void rejects_appends_once_stopped_instead_of_dropping_them() {
+        RequestJournal journal = journal();
+        journal.start();
+        journal.stop();
+
+        assertThatThrownBy(() -> journal.append(requests(1).get(0))).isInstanceOf(IllegalStateException.class);
+        new RequestJournal(orderHandler, false, directory.toString(), 1024, 1).append(requests(1).get(0));
+    }
+}
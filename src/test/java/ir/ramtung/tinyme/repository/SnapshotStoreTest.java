@@ -0,0 +1,83 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SnapshotStoreTest {
+    @TempDir
+    Path directory;
+    private BrokerRepository brokerRepository;
+    private ShareholderRepository shareholderRepository;
+    private SecurityRepository securityRepository;
+    private SnapshotStore snapshotStore;
+
+    @BeforeEach
+    void setup() {
+        brokerRepository = new BrokerRepository();
+        shareholderRepository = new ShareholderRepository();
+        securityRepository = new SecurityRepository();
+        snapshotStore = new SnapshotStore(brokerRepository, shareholderRepository, securityRepository, true, directory.resolve("state.snapshot").toString(), OrderBook.DEFAULT_MAX_DENSE_LEVELS);
+    }
+
+    private static List<String> describe(List<Order> queue) {
+        return queue.stream()
+                .map(order -> order.getOrderId() + ":" + order.getPrice() + ":" + order.getQuantity() + ":" + order.getEntryTime()
+                        + (order instanceof IcebergOrder iceberg ? ":" + iceberg.getPeakSize() + "/" + iceberg.getDisplayedQuantity() : ""))
+                .toList();
+    }
+
+    @Test
+    void restores_entities_and_order_queues() throws IOException {
+        Broker broker = Broker.builder().brokerId(1).name("Mofid").credit(1_000_000).build();
+        Shareholder shareholder = Shareholder.builder().shareholderId(7).name("Ali").build();
+        Security sorted = Security.builder().isin("ABC").tickSize(10).lotSize(5).build();
+        Security dense = Security.builder().isin("DEF").orderBook(new OrderBook(new PriceBand(100, 200), 1)).build();
+        brokerRepository.addBroker(broker);
+        shareholderRepository.addShareholder(shareholder);
+        securityRepository.addSecurity(sorted);
+        securityRepository.addSecurity(dense);
+        shareholder.incPosition(sorted, 500);
+        shareholder.incPosition(dense, 800);
+        LocalDateTime time = LocalDateTime.of(2024, 5, 1, 9, 0, 0, 123_456_789);
+        sorted.getOrderBook().enqueue(new Order(1, sorted, Side.BUY, 100, 1500, broker, shareholder, time, 0));
+        sorted.getOrderBook().enqueue(new Order(2, sorted, Side.BUY, 200, 1510, broker, shareholder, time.plusSeconds(1), 0));
+        sorted.getOrderBook().enqueue(new Order(3, sorted, Side.BUY, 300, 1500, broker, shareholder, time.plusSeconds(2), 0));
+        sorted.getOrderBook().enqueue(new IcebergOrder(4, sorted, Side.SELL, 400, 1600, broker, shareholder, time.plusSeconds(3), 50, 0));
+        dense.getOrderBook().enqueue(new Order(5, dense, Side.SELL, 100, 150, broker, shareholder, time, 0));
+        dense.getOrderBook().enqueue(new Order(6, dense, Side.SELL, 100, 250, broker, shareholder, time, 0));
+        List<String> sortedBuys = describe(sorted.getOrderBook().getBuyQueue());
+        List<String> sortedSells = describe(sorted.getOrderBook().getSellQueue());
+        List<String> denseSells = describe(dense.getOrderBook().getSellQueue());
+
+        snapshotStore.save(42);
+
+        assertThat(snapshotStore.load()).isEqualTo(42);
+
+        Broker restoredBroker = brokerRepository.findBrokerById(1);
+        assertThat(restoredBroker.getName()).isEqualTo("Mofid");
+        assertThat(restoredBroker.getCredit()).isEqualTo(1_000_000);
+        Security restoredSorted = securityRepository.findSecurityByIsin("ABC");
+        Security restoredDense = securityRepository.findSecurityByIsin("DEF");
+        assertThat(restoredSorted).isNotSameAs(sorted);
+        assertThat(restoredSorted.getTickSize()).isEqualTo(10);
+        assertThat(restoredSorted.getLotSize()).isEqualTo(5);
+        assertThat(restoredDense.getOrderBook().getPriceBand()).isEqualTo(new PriceBand(100, 200));
+        Shareholder restoredShareholder = shareholderRepository.findShareholderById(7);
+        assertThat(restoredShareholder.getName()).isEqualTo("Ali");
+        assertThat(restoredShareholder.hasEnoughPositionsOn(restoredSorted, 500)).isTrue();
+        assertThat(restoredShareholder.hasEnoughPositionsOn(restoredDense, 801)).isFalse();
+        assertThat(describe(restoredSorted.getOrderBook().getBuyQueue())).isEqualTo(sortedBuys);
+        assertThat(describe(restoredSorted.getOrderBook().getSellQueue())).isEqualTo(sortedSells);
+        assertThat(describe(restoredDense.getOrderBook().getSellQueue())).isEqualTo(denseSells);
+        assertThat(restoredDense.getOrderBook().findByOrderId(Side.SELL, 6).getBroker()).isSameAs(restoredBroker);
+    }
+}